@@ -0,0 +1,160 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * A set of tests related to the {@link ColorTransform}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class ColorTransformTest {
+
+    private static final int ITERATIONS = 20_000;
+
+    /**
+     * Tests that the fused transform matches the chained {@link Coloring} calls.
+     */
+    @Test
+    public final void testMatchesChainedCalls() {
+        final ColorTransform transform = new ColorTransform.Builder()
+                .shiftAlpha(-60)
+                .shiftAlpha(-20)
+                .alphaBlendWithWhite()
+                .shiftBrightness(-40)
+                .shiftAlpha(-50)
+                .shiftAlpha(30)
+                .build();
+        final ColorTransform contrast = new ColorTransform.Builder().alphaBlendWithBlack().shiftBrightness(25).contrast().build();
+
+        final Random random = new Random(0xC7F);
+        for (int i = 0; i < ITERATIONS; i++) {
+            final int color = random.nextInt();
+            int expected = Coloring.shiftAlpha(Coloring.shiftAlpha(color, -60), -20);
+            expected = Coloring.shiftBrightness(Coloring.alphaBlendWithWhite(expected), -40);
+            expected = Coloring.shiftAlpha(Coloring.shiftAlpha(expected, -50), 30);
+            assertEquals("Error in transform(" + hex(color) + ")", hex(expected), hex(transform.apply(color)));
+
+            final int expectedContrast = Coloring.contrastColor(Coloring.shiftBrightness(Coloring.alphaBlendWithBlack(color), 25));
+            assertEquals("Error in contrast(" + hex(color) + ")", hex(expectedContrast), hex(contrast.apply(color)));
+        }
+    }
+
+    /**
+     * Tests that alpha shifts in opposite directions are not merged.
+     */
+    @Test
+    public final void testOppositeAlphaShifts() {
+        final ColorTransform transform = new ColorTransform.Builder().shiftAlpha(100).shiftAlpha(-100).build();
+        assertEquals("Wrong alpha", hex(0x9B336699), hex(transform.apply(0xC8336699)));
+        assertEquals("Wrong alpha", hex(0x00336699), hex(transform.apply(0x00336699)));
+    }
+
+    /**
+     * Tests the bulk {@link ColorTransform#apply(int[], int, int[], int, int, java.util.concurrent.Executor)} method.
+     */
+    @Test
+    public final void testBulkApply() {
+        final ColorTransform transform = new ColorTransform.Builder().alphaBlendWithWhite().shiftBrightness(30).build();
+        final ColorTransform lookupOnly = new ColorTransform.Builder().shiftAlpha(-40).shiftAlpha(10).build();
+        final int[] colors = new int[3 * Coloring.PARALLEL_THRESHOLD + 5];
+        final Random random = new Random(0xB17);
+        for (int i = 0; i < colors.length; i++) {
+            // runs of the same color, like in real images
+            colors[i] = i % 7 == 0 ? random.nextInt() : colors[Math.max(0, i - 1)];
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (final ColorTransform tested : new ColorTransform[]{transform, lookupOnly}) {
+                final int[] out = new int[colors.length + 3];
+                tested.apply(colors, 2, out, 3, colors.length - 2, executor);
+                for (int i = 2; i < colors.length; i++) {
+                    assertEquals("Error at " + i, hex(tested.apply(colors[i])), hex(out[i + 1]));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests the color matrix and filter methods.
+     */
+    @Test
+    public final void testColorMatrix() {
+        final ColorTransform matrixTransform = new ColorTransform.Builder().shiftAlpha(-4).shiftAlpha(-6).build();
+        assertTrue("No matrix for alpha shifts", matrixTransform.hasColorMatrix());
+        final float[] matrix = matrixTransform.getColorMatrix();
+        assertNotNull("Matrix is null", matrix);
+        assertEquals("Wrong red factor", 1f, matrix[0], 1e-6f);
+        assertEquals("Wrong green factor", 1f, matrix[6], 1e-6f);
+        assertEquals("Wrong blue factor", 1f, matrix[12], 1e-6f);
+        assertEquals("Wrong alpha factor", 1f, matrix[18], 1e-6f);
+        assertEquals("Wrong alpha offset", -10f, matrix[19], 1e-6f);
+        assertSame("Filter is not reused", matrixTransform.getColorFilter(), matrixTransform.getColorFilter());
+
+        final Drawable drawable = matrixTransform.applyTo(new ColorDrawable(Color.RED));
+        assertSame("Filter is not set", matrixTransform.getColorFilter(), drawable.getColorFilter());
+
+        final ColorTransform opposite = new ColorTransform.Builder().shiftAlpha(-10).shiftAlpha(20).build();
+        assertFalse("Matrix for clamped steps", opposite.hasColorMatrix());
+        assertNull("Matrix for clamped steps", opposite.getColorMatrix());
+        final ColorTransform blending = new ColorTransform.Builder().shiftAlpha(-10).alphaBlendWithWhite().build();
+        assertFalse("Matrix for blending steps", blending.hasColorMatrix());
+        try {
+            blending.getColorFilter();
+            fail("Filter created for blending steps");
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests an empty transform.
+     */
+    @Test
+    public final void testIdentity() {
+        final ColorTransform identity = new ColorTransform.Builder().shiftAlpha(0).shiftBrightness(0).build();
+        assertTrue("No matrix for identity", identity.hasColorMatrix());
+        final Random random = new Random(0x1D);
+        for (int i = 0; i < 100; i++) {
+            final int color = random.nextInt();
+            assertEquals("Identity changed the color", hex(color), hex(identity.apply(color)));
+        }
+    }
+
+    // <editor-fold desc="Private helpers">
+
+    /**
+     * Gets the hex value of an integer.
+     *
+     * @param value Any integer
+     * @return A hex value, without the '0x' prefix
+     */
+    private String hex(final int value) {
+        return Integer.toHexString(value);
+    }
+    // </editor-fold>
+
+}
@@ -0,0 +1,231 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.StateListDrawable;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Throughput and allocation benchmarks for the most used {@link Coloring} methods. Each benchmark reports operations per second and bytes
+ * allocated per operation, and fails if the results regress compared to the baseline in {@value #BASELINE_RESOURCE}.
+ * <p>
+ * Benchmarks are skipped by default. Run them with {@code ./gradlew demo:testDebugUnitTest -Pbenchmark}, and add {@code -PbenchmarkRecord}
+ * to write the current results as the new baseline (do this on the machine that runs the checks, throughput depends on the hardware).
+ * The results of each run are also written to {@value #REPORT_FILE}. Throughput may drop by {@value #DEFAULT_TOLERANCE} (as a fraction)
+ * before failing, override with {@code -PbenchmarkTolerance=0.2}; allocations may grow by 10% plus a few bytes for JIT differences.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class ColoringBenchmark {
+
+    // <editor-fold desc="Tests setup">
+
+    private static final String BASELINE_RESOURCE = "benchmarks/coloring-baseline.properties";
+    private static final String BASELINE_FILE = "src/test/resources/" + BASELINE_RESOURCE;
+    private static final String REPORT_FILE = "build/reports/benchmarks/coloring.properties";
+    private static final float DEFAULT_TOLERANCE = 0.5f;
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long MEASURE_NANOS = 200_000_000L;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final int INPUTS = 1024;
+
+    private static final Properties sResults = new Properties();
+
+    /**
+     * A single benchmarked operation. Returns something derived from the result, so the JIT can't skip the work.
+     */
+    private interface Operation {
+        int run(int index);
+    }
+
+    private final int[] mColors = new int[INPUTS];
+    private final String[] mHexColors = new String[INPUTS];
+    private Context mContext;
+    private int mSink;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        Assume.assumeTrue("Benchmarks are disabled", Boolean.getBoolean("sillyandroid.benchmark"));
+        mContext = Robolectric.setupActivity(Activity.class);
+        final Random random = new Random(0xBE4C);
+        for (int i = 0; i < INPUTS; i++) {
+            mColors[i] = random.nextInt();
+            mHexColors[i] = String.format("#%08X", mColors[i]);
+        }
+    }
+
+    /**
+     * Writes the report, and the new baseline if recording.
+     */
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        if (sResults.isEmpty()) {
+            return;
+        }
+        store(sResults, new File(REPORT_FILE));
+        if (Boolean.getBoolean("sillyandroid.benchmark.record")) {
+            store(sResults, new File(BASELINE_FILE));
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Color math">
+    @Test
+    public final void decodeColor() {
+        benchmark("decodeColor", index -> Coloring.decodeColor(mHexColors[index]));
+    }
+
+    @Test
+    public final void alphaBlendColors() {
+        benchmark("alphaBlendColors", index -> Coloring.alphaBlendColors(mColors[index], mColors[INPUTS - 1 - index]));
+    }
+
+    @Test
+    public final void shiftBrightness() {
+        benchmark("shiftBrightness", index -> Coloring.shiftBrightness(mColors[index], (index & 0x7F) - 64));
+    }
+
+    @Test
+    public final void contrastColor() {
+        benchmark("contrastColor", index -> Coloring.contrastColor(mColors[index]));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Factories">
+    @Test
+    public final void createStateList() {
+        benchmark("createStateList", index -> {
+            final int color = mColors[index];
+            final StateListDrawable states = Coloring.createStateList(mContext, color, Coloring.darkenColor(color), Color.WHITE, false, 4);
+            return states.getState().length;
+        });
+    }
+
+    @Test
+    public final void createContrastTextColors() {
+        // a few colors, like in a real theme, these should come from the cache
+        benchmark("createContrastTextColors", index -> Coloring.createContrastTextColors(mColors[index & 0xF], mColors[index & 0x7])
+                .getDefaultColor());
+    }
+    // </editor-fold>
+
+    /* Private helpers */
+
+    private void benchmark(final String name, final Operation operation) {
+        runFor(operation, WARMUP_NANOS);
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        final com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        final long threadId = Thread.currentThread().getId();
+        double bestOpsPerSecond = 0d;
+        double leastBytesPerOp = Double.NaN;
+        for (int round = 0; round < MEASURE_ROUNDS; round++) {
+            final long allocatedBefore = allocations == null ? 0L : allocations.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            final long ops = runFor(operation, MEASURE_NANOS);
+            final long elapsed = System.nanoTime() - start;
+            final long allocatedAfter = allocations == null ? 0L : allocations.getThreadAllocatedBytes(threadId);
+
+            bestOpsPerSecond = Math.max(bestOpsPerSecond, ops * 1e9d / elapsed);
+            if (allocations != null) {
+                final double bytesPerOp = (double) (allocatedAfter - allocatedBefore) / ops;
+                leastBytesPerOp = Double.isNaN(leastBytesPerOp) ? bytesPerOp : Math.min(leastBytesPerOp, bytesPerOp);
+            }
+        }
+
+        sResults.setProperty(name + ".opsPerSecond", String.format(Locale.US, "%.0f", bestOpsPerSecond));
+        if (!Double.isNaN(leastBytesPerOp)) {
+            sResults.setProperty(name + ".bytesPerOp", String.format(Locale.US, "%.1f", leastBytesPerOp));
+        }
+        checkBaseline(name, bestOpsPerSecond, leastBytesPerOp);
+    }
+
+    /**
+     * Runs the operation in batches until the given time passes, returns the number of operations.
+     */
+    private long runFor(final Operation operation, final long nanos) {
+        final long end = System.nanoTime() + nanos;
+        long ops = 0;
+        int sink = 0;
+        do {
+            for (int i = 0; i < INPUTS; i++) {
+                sink += operation.run(i);
+            }
+            ops += INPUTS;
+        } while (System.nanoTime() < end);
+        mSink += sink;
+        return ops;
+    }
+
+    private void checkBaseline(final String name, final double opsPerSecond, final double bytesPerOp) {
+        if (Boolean.getBoolean("sillyandroid.benchmark.record")) {
+            return;
+        }
+        final Properties baseline = loadBaseline();
+        final String baselineOps = baseline.getProperty(name + ".opsPerSecond");
+        if (baselineOps != null) {
+            final String toleranceValue = System.getProperty("sillyandroid.benchmark.tolerance");
+            final float tolerance = toleranceValue == null ? DEFAULT_TOLERANCE : Float.parseFloat(toleranceValue);
+            final double minimum = Double.parseDouble(baselineOps) * (1d - tolerance);
+            assertTrue(String.format(Locale.US, "%s throughput regressed: %.0f ops/s, baseline %s ops/s", name, opsPerSecond, baselineOps),
+                    opsPerSecond >= minimum);
+        }
+        final String baselineBytes = baseline.getProperty(name + ".bytesPerOp");
+        if (baselineBytes != null && !Double.isNaN(bytesPerOp)) {
+            final double maximum = Double.parseDouble(baselineBytes) * 1.1d + 8d;
+            assertTrue(String.format(Locale.US, "%s allocations regressed: %.1f bytes/op, baseline %s bytes/op", name, bytesPerOp,
+                    baselineBytes), bytesPerOp <= maximum);
+        }
+    }
+
+    private static Properties loadBaseline() {
+        final Properties baseline = new Properties();
+        try (InputStream input = ColoringBenchmark.class.getClassLoader().getResourceAsStream(BASELINE_RESOURCE)) {
+            if (input != null) {
+                baseline.load(input);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read the benchmark baseline", e);
+        }
+        return baseline;
+    }
+
+    private static void store(final Properties results, final File file) throws IOException {
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create " + parent);
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            results.store(output, "Coloring benchmark results, see ColoringBenchmark");
+        }
+    }
+
+}
@@ -18,8 +18,10 @@ import android.graphics.drawable.RippleDrawable;
 import android.graphics.drawable.StateListDrawable;
 import android.graphics.drawable.VectorDrawable;
 import android.os.Build;
+import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.graphics.drawable.VectorDrawableCompat;
+import android.support.v4.graphics.ColorUtils;
 import android.util.Pair;
 
 import org.junit.After;
@@ -36,6 +38,10 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import me.angrybyte.sillyandroid.BuildConfig;
 
@@ -120,12 +126,25 @@ public final class ColoringTest {
         testCases.add(new Pair<>("qwerty-fail", Color.DKGRAY));
         testCases.add(new Pair<>("eight!", Color.DKGRAY));
         testCases.add(new Pair<>(null, Color.DKGRAY));
+        testCases.add(new Pair<>("#12345", Color.DKGRAY));
+        testCases.add(new Pair<>("#GG0000", Color.DKGRAY));
+        testCases.add(new Pair<>("0x", Color.DKGRAY));
+        testCases.add(new Pair<>("##FF0000", Color.DKGRAY));
+        testCases.add(new Pair<>("fff", Color.DKGRAY));
+        testCases.add(new Pair<>("0123", Color.DKGRAY));
+        // add short form and whitespace cases
+        testCases.add(new Pair<>("#F0a", 0xFFFF00AA));
+        testCases.add(new Pair<>("0x8F0a", 0x88FF00AA));
+        testCases.add(new Pair<>("  #3040cC\n", 0xFF3040CC));
 
         // test with those cases
         final String errorText = "Error in decodeColor(%s)";
         for (final Pair<String, Integer> testCase : testCases) {
             final String error = String.format(errorText, testCase.first);
             assertEquals(error, (int) testCase.second, Coloring.decodeColor(testCase.first));
+            if (testCase.first != null) {
+                assertEquals(error, (int) testCase.second, Coloring.decodeColor(new StringBuilder(testCase.first)));
+            }
         }
     }
 
@@ -199,6 +218,77 @@ public final class ColoringTest {
         }
     }
 
+    /**
+     * Tests the {@link Coloring#alphaBlendColors(int, int)} method against the legacy floating-point implementation, using a large set of
+     * random (but reproducible) color pairs.
+     */
+    @Test
+    public final void testAlphaBlendColorsMatchesLegacy() {
+        final Random random = new Random(0xC010);
+        final String errorText = "Error in alphaBlendColors(%s, %s)";
+        for (int i = 0; i < 100_000; i++) {
+            final int top = random.nextInt();
+            final int bottom = random.nextInt();
+            final String error = String.format(errorText, hex(top), hex(bottom));
+            assertEquals(error, hex(legacyAlphaBlendColors(top, bottom)), hex(Coloring.alphaBlendColors(top, bottom)));
+        }
+    }
+
+    /**
+     * Tests the bulk color methods against their single-color versions, with and without an executor.
+     */
+    @Test
+    public final void testBulkColorOperations() {
+        final Random random = new Random(0xB01C);
+        final int length = Coloring.PARALLEL_THRESHOLD * 4 + 17;
+        final int offset = 3;
+        final int[] colors = new int[length + offset];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = random.nextInt();
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (final Executor iExecutor : new Executor[] { null, executor }) {
+                final int[] out = new int[length + 1];
+                Coloring.alphaBlendColors(colors, offset, out, 1, length, Color.YELLOW, iExecutor);
+                for (int i = 0; i < length; i++) {
+                    assertEquals("Error in bulk alphaBlendColors at " + i, Coloring.alphaBlendColors(colors[offset + i], Color.YELLOW), out[1 + i]);
+                }
+                Coloring.shiftBrightness(colors, offset, out, 1, length, -40, iExecutor);
+                for (int i = 0; i < length; i++) {
+                    assertEquals("Error in bulk shiftBrightness at " + i, Coloring.shiftBrightness(colors[offset + i], -40), out[1 + i]);
+                }
+                Coloring.shiftAlpha(colors, offset, out, 1, length, 100, iExecutor);
+                for (int i = 0; i < length; i++) {
+                    assertEquals("Error in bulk shiftAlpha at " + i, Coloring.shiftAlpha(colors[offset + i], 100), out[1 + i]);
+                }
+                Coloring.contrastColors(colors, offset, out, 1, length, iExecutor);
+                for (int i = 0; i < length; i++) {
+                    assertEquals("Error in bulk contrastColors at " + i, Coloring.contrastColor(colors[offset + i]), out[1 + i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // in-place processing
+        final int[] copy = colors.clone();
+        Coloring.shiftAlpha(copy, 0, copy, 0, copy.length, -255);
+        for (int i = 0; i < copy.length; i++) {
+            assertEquals("Error in in-place shiftAlpha at " + i, colors[i] & 0x00FFFFFF, copy[i]);
+        }
+
+        // out of range
+        boolean thrown = false;
+        try {
+            Coloring.contrastColors(colors, offset, new int[length - 1], 0, length);
+        } catch (IndexOutOfBoundsException ignored) {
+            thrown = true;
+        }
+        assertTrue("Out of range output didn't throw", thrown);
+    }
+
     /**
      * Tests the {@link Coloring#darkenColor(int)} method.
      */
@@ -284,6 +374,22 @@ public final class ColoringTest {
         }
     }
 
+    /**
+     * Tests that {@link Coloring#shiftBrightness(int, int)} returns exactly the same results as a round-trip through
+     * {@link ColorUtils#colorToHSL(int, float[])} and {@link ColorUtils#HSLToColor(float[])}, using random (but reproducible) inputs.
+     */
+    @Test
+    public final void testShiftBrightnessCompatibility() {
+        final Random random = new Random(0x5B1F);
+        final String errorText = "Error in shiftBrightness(%s, %d)";
+        for (int i = 0; i < 100_000; i++) {
+            final int color = random.nextInt();
+            final int amount = random.nextInt(511) - 255;
+            final String error = String.format(errorText, hex(color), amount);
+            assertEquals(error, hex(legacyShiftBrightness(color, amount)), hex(Coloring.shiftBrightness(color, amount)));
+        }
+    }
+
     /**
      * Tests the {@link Coloring#dimColor(int)} method.
      */
@@ -394,6 +500,36 @@ public final class ColoringTest {
         }
     }
 
+    /**
+     * Tests the WCAG-related methods: {@link Coloring#luminance(int)}, {@link Coloring#contrastRatio(int, int)},
+     * {@link Coloring#bestForeground(int, int...)} and {@link Coloring#contrastColorWcag(int)}.
+     */
+    @Test
+    public final void testWcagContrast() {
+        assertEquals("Black luminance is wrong", 0f, Coloring.luminance(Color.BLACK), 1e-6f);
+        assertEquals("White luminance is wrong", 1f, Coloring.luminance(Color.WHITE), 1e-6f);
+        assertEquals("Black on white ratio is wrong", 21f, Coloring.contrastRatio(Color.BLACK, Color.WHITE), 1e-4f);
+        assertEquals("White on black ratio is wrong", 21f, Coloring.contrastRatio(Color.WHITE, Color.BLACK), 1e-4f);
+        assertEquals("Same colors ratio is wrong", 1f, Coloring.contrastRatio(Color.RED, Color.RED), 1e-6f);
+        assertEquals("Transparent foreground ratio is wrong", 1f, Coloring.contrastRatio(Color.TRANSPARENT, Color.BLUE), 1e-6f);
+        // a well-known reference value: #777777 on white is just under the AA threshold
+        assertEquals("Gray on white ratio is wrong", 4.48f, Coloring.contrastRatio(0xFF777777, Color.WHITE), 0.01f);
+
+        final Random random = new Random(0x3CA6);
+        for (int i = 0; i < 10_000; i++) {
+            final int color = random.nextInt();
+            final double expected = 0.2126d * linear(Color.red(color)) + 0.7152d * linear(Color.green(color)) + 0.0722d * linear(Color.blue(color));
+            assertEquals("Error in luminance(" + hex(color) + ")", expected, Coloring.luminance(color), 1e-5d);
+            final int opaque = color | 0xFF000000;
+            final int expectedContrast = Coloring.contrastRatio(Color.WHITE, opaque) > Coloring.contrastRatio(Color.BLACK, opaque)
+                    ? Color.WHITE : Color.BLACK;
+            assertEquals("Error in contrastColorWcag(" + hex(color) + ")", hex(expectedContrast), hex(Coloring.contrastColorWcag(opaque)));
+        }
+
+        assertEquals("Wrong best foreground", hex(Color.YELLOW), hex(Coloring.bestForeground(Color.BLACK, Color.BLUE, Color.YELLOW, Color.RED)));
+        assertEquals("Wrong best foreground", hex(Color.BLUE), hex(Coloring.bestForeground(Color.WHITE, Color.BLUE, Color.YELLOW, Color.RED)));
+    }
+
     /**
      * Tests the {@link Coloring#colorBitmap(Bitmap, int)} method.
      * <p>
@@ -474,6 +610,86 @@ public final class ColoringTest {
         }
     }
 
+    /**
+     * Tests the {@link Coloring#colorBitmapInPlace(Bitmap, int)} method.
+     */
+    @Test
+    public final void testColorBitmapInPlace() {
+        // left half is opaque blue, a single pixel is half-transparent blue, the rest is transparent
+        final Bitmap mutable = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        final int[] pixels = new int[100];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i % 10 < 5 ? Color.BLUE : Color.TRANSPARENT;
+        }
+        pixels[99] = 0x800000FF;
+        mutable.setPixels(pixels, 0, 10, 0, 0, 10, 10);
+        assertTrue("Colored bitmap is not the same instance", mutable == Coloring.colorBitmapInPlace(mutable, Color.RED));
+
+        final String errorText = "Error while coloring in place, pixel (%d, %d) is %s";
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                final int expected = y == 9 && x == 9 ? 0x80FF0000 : (x < 5 ? Color.RED : Color.TRANSPARENT);
+                final String pixel = hex(mutable.getPixel(x, y));
+                assertEquals(String.format(errorText, x, y, pixel), hex(expected), pixel);
+            }
+        }
+
+        // a translucent color is blended over the opaque pixels
+        final Bitmap translucent = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+        translucent.setPixel(0, 0, Color.BLUE);
+        Coloring.colorBitmapInPlace(translucent, 0x80FF0000);
+        assertEquals("Error while coloring in place with a translucent color", hex(Coloring.alphaBlendColors(0x80FF0000, Color.BLUE)),
+                hex(translucent.getPixel(0, 0)));
+
+        final Bitmap immutable = Bitmap.createBitmap(new int[100], 10, 10, Bitmap.Config.ARGB_8888);
+        boolean thrown = false;
+        try {
+            Coloring.colorBitmapInPlace(immutable, Color.RED);
+        } catch (IllegalArgumentException ignored) {
+            thrown = true;
+        }
+        assertTrue("Coloring an immutable bitmap didn't throw", thrown);
+    }
+
+    /**
+     * Tests the {@link Coloring#extractPalette(Bitmap)} method with a bitmap large enough to be sampled pixel by pixel.
+     */
+    @Test
+    public final void testExtractPalette() {
+        // 600x600 gets a sampling step of 6, only every 6th pixel of every 6th row is sampled
+        final int size = 600;
+        final int[] pixels = new int[size * size];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (i / size) % 6 == 0 && (i % size) % 6 == 0 ? Color.BLUE : Color.RED;
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(pixels, 0, size, 0, 0, size, size);
+
+        final PaletteExtractor.Palette palette = Coloring.extractPalette(bitmap);
+        assertEquals("Wrong number of sampled pixels", 100 * 100, palette.getPixelCount());
+        assertEquals("Wrong dominant color", hex(Color.BLUE), hex(palette.getDominantColor(Color.TRANSPARENT)));
+    }
+
+    /**
+     * Tests the {@link Coloring#colorBitmap(Bitmap, int, Bitmap.Config, BitmapPool)} and
+     * {@link Coloring#colorMaskDrawable(Context, Bitmap, int)} methods.
+     */
+    @Test
+    public final void testColorBitmapConfigs() {
+        final Bitmap original = Bitmap.createBitmap(12, 8, Bitmap.Config.ARGB_8888);
+        for (final Bitmap.Config config : new Bitmap.Config[]{Bitmap.Config.ARGB_8888, Bitmap.Config.RGB_565, Bitmap.Config.ALPHA_8}) {
+            final Bitmap colored = Coloring.colorBitmap(original, Color.RED, config, null);
+            assertEquals("Wrong config", config, colored.getConfig());
+            assertEquals("Wrong width", original.getWidth(), colored.getWidth());
+            assertEquals("Wrong height", original.getHeight(), colored.getHeight());
+        }
+        assertEquals("Source config is not kept", Bitmap.Config.ARGB_8888, Coloring.colorBitmap(original, Color.RED).getConfig());
+
+        final BitmapDrawable mask = Coloring.colorMaskDrawable(mActivityContext, original, Color.BLUE);
+        assertEquals("Mask is not alpha-only", Bitmap.Config.ALPHA_8, mask.getBitmap().getConfig());
+        assertEquals("Mask color is not set", hex(Color.BLUE), hex(mask.getPaint().getColor()));
+    }
+
     /**
      * Tests the {@link Coloring#colorBitmapDrawable(Context, int, int)} method.
      * <p>
@@ -488,6 +704,40 @@ public final class ColoringTest {
         assertEquals("Colored middle pixel is not transparent", hex(Color.TRANSPARENT), hex(coloredPixel));
     }
 
+    /**
+     * Tests the {@link Coloring#colorBitmapDrawable(Context, int, int, int, int, boolean)} method.
+     */
+    @Test
+    public final void testColorDrawableResourceDownsampled() {
+        final BitmapDrawable colored = Coloring.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.RED, 10, 10, true);
+        assertNotNull("Colored drawable is null", colored);
+        assertNotNull("Colored bitmap is null", colored.getBitmap());
+    }
+
+    /**
+     * Tests the {@link Coloring#calculateInSampleSize(int, int, int, int)} method.
+     */
+    @Test
+    public final void testCalculateInSampleSize() {
+        // input (width, height, target width, target height) and output/expected list
+        final List<int[]> testCases = new LinkedList<>();
+        testCases.add(new int[] { 100, 100, 100, 100, 1 });
+        testCases.add(new int[] { 100, 100, 200, 200, 1 });
+        testCases.add(new int[] { 100, 100, 50, 50, 2 });
+        testCases.add(new int[] { 100, 100, 49, 49, 2 });
+        testCases.add(new int[] { 1024, 768, 48, 48, 16 });
+        testCases.add(new int[] { 4000, 100, 48, 48, 2 });
+        testCases.add(new int[] { 100, 100, 0, 0, 1 });
+        testCases.add(new int[] { -1, -1, 48, 48, 1 });
+
+        // test with those cases
+        final String errorText = "Error in calculateInSampleSize(%d, %d, %d, %d)";
+        for (final int[] testCase : testCases) {
+            final String error = String.format(errorText, testCase[0], testCase[1], testCase[2], testCase[3]);
+            assertEquals(error, testCase[4], Coloring.calculateInSampleSize(testCase[0], testCase[1], testCase[2], testCase[3]));
+        }
+    }
+
     /**
      * Tests the {@link Coloring#colorDrawable(Context, Drawable, int)} method.
      * <p>
@@ -712,6 +962,8 @@ public final class ColoringTest {
         assertEquals("Default color is not white", hex(Color.WHITE), hex(stateList.getDefaultColor()));
         final int activeTextColor = stateList.getColorForState(new int[] { android.R.attr.state_pressed }, Color.BLACK);
         assertEquals("Clicked color is not contrasted to black", hex(Coloring.contrastColor(Color.BLACK)), hex(activeTextColor));
+        assertTrue("ColorStateList is not shared", stateList == Coloring.createContrastTextColors(Color.WHITE, Color.BLACK));
+        assertTrue("ColorStateList is shared for a different contrast", stateList != Coloring.createContrastTextColors(Color.WHITE, Color.WHITE));
     }
 
     /**
@@ -760,6 +1012,41 @@ public final class ColoringTest {
 
     // <editor-fold desc="Private helpers">
 
+    /**
+     * The original, floating-point implementation of {@link Coloring#alphaBlendColors(int, int)}. Alpha is sliced to 2 decimal places and
+     * components are rounded up.
+     */
+    @ColorInt
+    private int legacyAlphaBlendColors(@ColorInt final int topColor, @ColorInt final int bottomColor) {
+        final double alphaFraction = Math.round(Color.alpha(topColor) / 255d * 100d) / 100d;
+        final int r = Coloring.clampRGB((int) Math.ceil(Color.red(topColor) * alphaFraction + Color.red(bottomColor) * (1d - alphaFraction)));
+        final int g = Coloring.clampRGB((int) Math.ceil(Color.green(topColor) * alphaFraction + Color.green(bottomColor) * (1d - alphaFraction)));
+        final int b = Coloring.clampRGB((int) Math.ceil(Color.blue(topColor) * alphaFraction + Color.blue(bottomColor) * (1d - alphaFraction)));
+        return Color.argb(0xFF, r, g, b);
+    }
+
+    /**
+     * The original implementation of {@link Coloring#shiftBrightness(int, int)}, going through a {@code float[]} HSL representation.
+     */
+    @ColorInt
+    private int legacyShiftBrightness(@ColorInt final int color, final int amount) {
+        if (amount == 0) {
+            return color;
+        }
+        final float[] hsl = new float[3];
+        ColorUtils.colorToHSL(color, hsl);
+        hsl[2] = Math.max(0f, Math.min(1f, hsl[2] + amount / 255f));
+        return ColorUtils.setAlphaComponent(ColorUtils.HSLToColor(hsl), Color.alpha(color));
+    }
+
+    /**
+     * Converts the given sRGB component to linear light, as defined by WCAG 2.0.
+     */
+    private double linear(final int component) {
+        final double value = component / 255d;
+        return value <= 0.03928d ? value / 12.92d : Math.pow((value + 0.055d) / 1.055d, 2.4d);
+    }
+
     /**
      * Gets the hex value of an integer. This is just a shorthand for {@link Integer#toHexString(int)}.
      *
@@ -0,0 +1,130 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * A set of tests related to the {@link HierarchyTinter}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class HierarchyTinterTest {
+
+    // <editor-fold desc="Tests setup">
+
+    private Activity mActivityContext;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        mActivityContext = Robolectric.setupActivity(Activity.class);
+    }
+
+    /**
+     * Destroys the testing environment.
+     */
+    @After
+    public final void tearDown() {
+        mActivityContext = null;
+    }
+    // </editor-fold>
+
+    /**
+     * Tests the {@link HierarchyTinter#tint(android.view.ViewGroup, int)} method.
+     */
+    @Test
+    public final void testTint() {
+        final LinearLayout root = new LinearLayout(mActivityContext);
+        final FrameLayout nested = new FrameLayout(mActivityContext);
+        final ImageView first = createIcon(android.R.drawable.btn_star_big_on);
+        final ImageView second = createIcon(android.R.drawable.btn_star_big_on);
+        final ImageView third = createIcon(android.R.drawable.btn_star_big_on);
+        final ImageView other = createIcon(android.R.drawable.btn_star_big_off);
+        final ImageView empty = new ImageView(mActivityContext);
+        root.addView(first);
+        root.addView(new TextView(mActivityContext));
+        root.addView(nested);
+        root.addView(empty);
+        nested.addView(second);
+        nested.addView(third);
+        nested.addView(other);
+        final Drawable original = first.getDrawable();
+
+        final HierarchyTinter.Stats stats = HierarchyTinter.tint(root, Color.RED);
+        assertEquals("Wrong view count", 8, stats.getViewCount());
+        assertEquals("Wrong icon count", 4, stats.getIconCount());
+        assertEquals("Wrong colored count", 2, stats.getColoredCount());
+        assertEquals("Wrong shared count", 2, stats.getSharedCount());
+        assertTrue("Negative duration", stats.getDurationNanos() >= 0);
+
+        final BitmapDrawable firstTinted = (BitmapDrawable) first.getDrawable();
+        assertNotSame("Icon was not tinted", original, firstTinted);
+        assertNotSame("Icons share the drawable", firstTinted, second.getDrawable());
+        assertSame("Icons don't share the bitmap", firstTinted.getBitmap(), ((BitmapDrawable) second.getDrawable()).getBitmap());
+        assertSame("Icons don't share the bitmap", firstTinted.getBitmap(), ((BitmapDrawable) third.getDrawable()).getBitmap());
+        assertNotSame("Different icons share the bitmap", firstTinted.getBitmap(), ((BitmapDrawable) other.getDrawable()).getBitmap());
+        assertNull("Empty icon got a drawable", empty.getDrawable());
+    }
+
+    /**
+     * Tests the {@link HierarchyTinter#tint(android.view.ViewGroup, int)} method with drawables colored by a color filter.
+     */
+    @Test
+    public final void testTintFiltered() {
+        final LinearLayout root = new LinearLayout(mActivityContext);
+        final GradientDrawable shape = new GradientDrawable();
+        shape.setColor(Color.BLUE);
+        final ImageView[] icons = new ImageView[3];
+        for (int i = 0; i < icons.length; i++) {
+            icons[i] = new ImageView(mActivityContext);
+            // different drawables, all sharing the same state
+            icons[i].setImageDrawable(i == 0 ? shape : shape.getConstantState().newDrawable());
+            root.addView(icons[i]);
+        }
+
+        final HierarchyTinter.Stats stats = HierarchyTinter.tint(root, Color.RED);
+        assertEquals("Wrong colored count", 1, stats.getColoredCount());
+        assertEquals("Wrong shared count", 2, stats.getSharedCount());
+        assertNull("Source drawable was changed", shape.getColorFilter());
+        for (final ImageView icon : icons) {
+            assertNotNull("Icon is not tinted", icon.getDrawable().getColorFilter());
+        }
+        assertNotSame("Icons share the drawable", icons[1].getDrawable(), icons[2].getDrawable());
+    }
+
+    // <editor-fold desc="Private helpers">
+
+    private ImageView createIcon(final int drawableId) {
+        final ImageView icon = new ImageView(mActivityContext);
+        icon.setImageResource(drawableId);
+        return icon;
+    }
+    // </editor-fold>
+
+}
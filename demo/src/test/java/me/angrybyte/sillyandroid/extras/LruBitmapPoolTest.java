@@ -0,0 +1,105 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * A set of tests related to the {@link LruBitmapPool}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class LruBitmapPoolTest {
+
+    // <editor-fold desc="Tests setup">
+
+    private static final int SIDE = 10;
+    private static final int BITMAP_BYTES = SIDE * SIDE * 4;
+
+    private LruBitmapPool mPool;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        mPool = new LruBitmapPool(BITMAP_BYTES * 2);
+    }
+
+    /**
+     * Destroys the testing environment.
+     */
+    @After
+    public final void tearDown() {
+        mPool = null;
+    }
+    // </editor-fold>
+
+    /**
+     * Tests the {@link LruBitmapPool#acquire(int, int, Bitmap.Config)} and {@link LruBitmapPool#release(Bitmap)} methods.
+     */
+    @Test
+    public final void testAcquireRelease() {
+        final Bitmap first = mPool.acquire(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        assertEquals("Wrong width", SIDE, first.getWidth());
+        assertEquals("Wrong height", SIDE, first.getHeight());
+        assertTrue("Bitmap is not mutable", first.isMutable());
+
+        mPool.release(first);
+        assertEquals("Pool size is wrong", BITMAP_BYTES, mPool.getSizeBytes());
+        assertNotSame("Different config reused the bitmap", first, mPool.acquire(SIDE, SIDE, Bitmap.Config.RGB_565));
+        assertNotSame("Different size reused the bitmap", first, mPool.acquire(SIDE, SIDE + 1, Bitmap.Config.ARGB_8888));
+        assertSame("Bitmap is not reused", first, mPool.acquire(SIDE, SIDE, Bitmap.Config.ARGB_8888));
+        assertEquals("Pool is not empty", 0, mPool.getSizeBytes());
+    }
+
+    /**
+     * Tests that the {@link LruBitmapPool} recycles the oldest bitmaps when it's full.
+     */
+    @Test
+    public final void testEviction() {
+        final Bitmap first = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        final Bitmap second = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        final Bitmap third = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        mPool.release(first);
+        mPool.release(second);
+        mPool.release(third);
+
+        assertEquals("Pool is over the limit", mPool.getMaxSizeBytes(), mPool.getSizeBytes());
+        assertTrue("Oldest bitmap is not recycled", first.isRecycled());
+        assertFalse("Newer bitmap is recycled", second.isRecycled());
+
+        mPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals("Pool is not empty after trimming", 0, mPool.getSizeBytes());
+        assertTrue("Bitmap is not recycled after trimming", third.isRecycled());
+    }
+
+    /**
+     * Tests the {@link Coloring#colorBitmap(Bitmap, int, BitmapPool)} method.
+     */
+    @Test
+    public final void testColorBitmapFromPool() {
+        final Bitmap source = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        final Bitmap pooled = Bitmap.createBitmap(SIDE, SIDE, Bitmap.Config.ARGB_8888);
+        mPool.release(pooled);
+
+        final Bitmap colored = Coloring.colorBitmap(source, Color.RED, mPool);
+        assertSame("Colored bitmap is not taken from the pool", pooled, colored);
+    }
+
+}
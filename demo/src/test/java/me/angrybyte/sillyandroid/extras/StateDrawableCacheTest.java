@@ -0,0 +1,76 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.drawable.StateListDrawable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * A set of tests related to the {@link StateDrawableCache}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class StateDrawableCacheTest {
+
+    // <editor-fold desc="Tests setup">
+
+    private static final int MAX_ENTRIES = 2;
+
+    private Activity mActivityContext;
+    private StateDrawableCache mCache;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        mActivityContext = Robolectric.setupActivity(Activity.class);
+        mCache = new StateDrawableCache(MAX_ENTRIES);
+    }
+
+    /**
+     * Destroys the testing environment.
+     */
+    @After
+    public final void tearDown() {
+        mActivityContext = null;
+        mCache = null;
+    }
+    // </editor-fold>
+
+    /**
+     * Tests the {@link StateDrawableCache#createStateList(android.content.Context, int, int, int, boolean, int)} method.
+     */
+    @Test
+    public final void testCreateStateList() {
+        final StateListDrawable first = mCache.createStateList(mActivityContext, Color.RED, Color.BLUE, Color.GREEN, false, 4);
+        final StateListDrawable second = mCache.createStateList(mActivityContext, Color.RED, Color.BLUE, Color.GREEN, false, 4);
+        assertNotNull("State list is null", second);
+        assertNotSame("Cached drawables are the same instance", first, second);
+        assertTrue("Cached state list is not stateful", second.isStateful());
+        assertEquals("Cache size is wrong", 1, mCache.size());
+
+        mCache.createStateList(mActivityContext, Color.RED, Color.BLUE, Color.GREEN, true, 4);
+        assertEquals("Cache size is wrong", 2, mCache.size());
+        mCache.createStateList(mActivityContext, Color.RED, Color.BLUE, Color.GREEN, true, 8);
+        assertEquals("Cache is over the limit", MAX_ENTRIES, mCache.size());
+
+        mCache.clear();
+        assertEquals("Cache is not empty", 0, mCache.size());
+    }
+
+}
@@ -0,0 +1,98 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.drawable.StateListDrawable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * A set of tests related to the {@link ThemePalette}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class ThemePaletteTest {
+
+    // <editor-fold desc="Tests setup">
+
+    private static final int BASE_COLOR = 0xFF3F51B5;
+
+    private Activity mActivityContext;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        mActivityContext = Robolectric.setupActivity(Activity.class);
+    }
+
+    /**
+     * Destroys the testing environment.
+     */
+    @After
+    public final void tearDown() {
+        mActivityContext = null;
+    }
+    // </editor-fold>
+
+    /**
+     * Tests that the derived colors match the {@link Coloring} methods.
+     */
+    @Test
+    public final void testDerivedColors() {
+        final ThemePalette palette = new ThemePalette(BASE_COLOR);
+        assertEquals("Wrong base color", BASE_COLOR, palette.getBaseColor());
+        assertEquals("Wrong darker color", Coloring.darkenColor(BASE_COLOR), palette.getDarkerColor());
+        assertEquals("Wrong lighter color", Coloring.lightenColor(BASE_COLOR), palette.getLighterColor());
+        assertEquals("Wrong dimmed color", Coloring.dimColor(BASE_COLOR), palette.getDimmedColor());
+        assertEquals("Wrong opacified color", Coloring.opacifyColor(BASE_COLOR), palette.getOpacifiedColor());
+        assertEquals("Wrong contrast color", Coloring.contrastColor(BASE_COLOR), palette.getContrastColor());
+        assertSame("Wrong contrast text colors", Coloring.createContrastTextColors(palette.getContrastColor(), palette.getDarkerColor()),
+                palette.getContrastTextColors());
+    }
+
+    /**
+     * Tests the {@link ThemePalette#of(int)} method.
+     */
+    @Test
+    public final void testSharedPalettes() {
+        final ThemePalette light = ThemePalette.of(BASE_COLOR);
+        assertSame("Palette is not shared", light, ThemePalette.of(BASE_COLOR));
+
+        // e.g. switching to a dark theme and back
+        final ThemePalette dark = ThemePalette.of(Color.DKGRAY);
+        assertNotSame("Different colors share the palette", light, dark);
+        assertEquals("Wrong base color", Color.DKGRAY, dark.getBaseColor());
+        assertSame("Palette is not kept", light, ThemePalette.of(BASE_COLOR));
+    }
+
+    /**
+     * Tests the {@link ThemePalette#createStateList(android.content.Context, boolean, int)} method.
+     */
+    @Test
+    public final void testCreateStateList() {
+        final ThemePalette palette = new ThemePalette(BASE_COLOR);
+        final StateListDrawable first = palette.createStateList(mActivityContext, false, 4);
+        final StateListDrawable second = palette.createStateList(mActivityContext, false, 4);
+        assertNotNull("State list is null", second);
+        assertNotSame("Drawables are the same instance", first, second);
+        assertTrue("State list is not stateful", second.isStateful());
+        assertNotNull("Responsive drawable is null", palette.createResponsiveDrawable(mActivityContext, true, 0, null));
+    }
+
+}
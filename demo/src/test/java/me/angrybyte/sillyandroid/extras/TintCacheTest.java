@@ -0,0 +1,103 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import me.angrybyte.sillyandroid.BuildConfig;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * A set of tests related to the {@link TintCache}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public final class TintCacheTest {
+
+    // <editor-fold desc="Tests setup">
+
+    private static final int MAX_BYTES = 16 * 1024 * 1024;
+
+    private Activity mActivityContext;
+    private TintCache mTintCache;
+
+    /**
+     * Sets up the testing environment.
+     */
+    @Before
+    public final void setUp() {
+        mActivityContext = Robolectric.setupActivity(Activity.class);
+        mTintCache = new TintCache(MAX_BYTES);
+    }
+
+    /**
+     * Destroys the testing environment.
+     */
+    @After
+    public final void tearDown() {
+        mActivityContext = null;
+        mTintCache = null;
+    }
+    // </editor-fold>
+
+    /**
+     * Tests the {@link TintCache#colorBitmapDrawable(android.content.Context, int, int)} method.
+     */
+    @Test
+    public final void testColorBitmapDrawable() {
+        final BitmapDrawable first = mTintCache.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.RED);
+        final BitmapDrawable second = mTintCache.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.RED);
+        final BitmapDrawable other = mTintCache.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.BLUE);
+
+        assertNotSame("Cached drawables are the same instance", first, second);
+        assertSame("Cached drawables don't share the bitmap", first.getBitmap(), second.getBitmap());
+        assertNotSame("Different colors share the bitmap", first.getBitmap(), other.getBitmap());
+        assertTrue("Cache size is over the limit", mTintCache.getSizeBytes() <= mTintCache.getMaxSizeBytes());
+    }
+
+    /**
+     * Tests the {@link TintCache#colorDrawable(android.content.Context, Drawable, int)} method.
+     */
+    @Test
+    public final void testColorDrawable() {
+        // noinspection deprecation - can't enforce Lollipop here
+        final Drawable original = mActivityContext.getResources().getDrawable(android.R.drawable.btn_star_big_on);
+        final Drawable first = mTintCache.colorDrawable(mActivityContext, original, Color.RED);
+        final Drawable second = mTintCache.colorDrawable(mActivityContext, original, Color.RED);
+
+        assertTrue("Colored drawable is not a bitmap drawable", first instanceof BitmapDrawable);
+        assertNotSame("Cached drawables are the same instance", first, second);
+        assertSame("Cached drawables don't share the bitmap", ((BitmapDrawable) first).getBitmap(), ((BitmapDrawable) second).getBitmap());
+    }
+
+    /**
+     * Tests the {@link TintCache#onTrimMemory(int)} and {@link TintCache#clear()} methods.
+     */
+    @Test
+    public final void testTrimAndClear() {
+        final BitmapDrawable first = mTintCache.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.RED);
+        mTintCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals("Cache is not empty after trimming", 0, mTintCache.getSizeBytes());
+        final BitmapDrawable second = mTintCache.colorBitmapDrawable(mActivityContext, android.R.drawable.btn_star_big_on, Color.RED);
+        assertNotSame("Trimmed bitmap is still shared", first.getBitmap(), second.getBitmap());
+
+        mTintCache.clear();
+        assertEquals("Cache is not empty after clearing", 0, mTintCache.getSizeBytes());
+        assertEquals("Max size changed", MAX_BYTES, mTintCache.getMaxSizeBytes());
+    }
+
+}
@@ -7,6 +7,8 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ResolveInfo;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
@@ -43,12 +45,19 @@ import android.view.inputmethod.InputMethodManager;
 import android.widget.Toast;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Objects;
 
+import me.angrybyte.sillyandroid.extras.BitmapPool;
+
 /**
  * This is the library basis. It contains methods used to customize and adapt system-provided Android components.
  */
@@ -56,6 +65,13 @@ import java.util.Objects;
 public final class SillyAndroid {
 
     private static final String TAG = SillyAndroid.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Size of the pooled buffers used when reading text streams, in chars
+     */
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_READ_BUFFERS = 2;
+    private static final ArrayDeque<char[]> sReadBuffers = new ArrayDeque<>(MAX_POOLED_READ_BUFFERS);
 
     /**
      * A wrapper class to shorten the UI configuration queries.
@@ -227,6 +243,35 @@ public final class SillyAndroid {
         void onKeyboardHidden();
     }
 
+    /**
+     * Receives the lines of a text stream one by one, see {@link #readRawResourceLines(Context, int, Charset, LineCallback)}.
+     */
+    public interface LineCallback {
+
+        /**
+         * Notifies the callback of a new line. Lines may end with {@code "\n"}, {@code "\r"} or {@code "\r\n"}.
+         *
+         * @param line The line that was read, without the line terminator
+         * @return {@code True} to continue reading, {@code false} to stop
+         */
+        boolean onLine(@NonNull final String line);
+    }
+
+    /**
+     * Receives the contents of a text stream in chunks, see {@link #readRawResourceChunks(Context, int, Charset, ChunkCallback)}.
+     */
+    public interface ChunkCallback {
+
+        /**
+         * Notifies the callback of a new chunk of text. The buffer is reused for the next chunk, so copy the chars you need to keep.
+         *
+         * @param buffer Contains the chunk, starting from index 0
+         * @param length How many chars from the buffer belong to this chunk
+         * @return {@code True} to continue reading, {@code false} to stop
+         */
+        boolean onChunk(@NonNull final char[] buffer, @IntRange(from = 1) final int length);
+    }
+
     /**
      * Making sure that this class' default constructor is private.
      */
@@ -510,7 +555,8 @@ public final class SillyAndroid {
     }
 
     /**
-     * Reads the raw resource as plain text from the given resource ID.
+     * Reads the raw resource as plain text from the given resource ID. Same as {@link #readRawResource(Context, int, Charset)} with the
+     * UTF-8 charset.
      *
      * @param context       Which context to use for reading
      * @param rawResourceId The raw resource identifier
@@ -519,13 +565,32 @@ public final class SillyAndroid {
     @NonNull
     @SuppressWarnings("unused")
     public static String readRawResource(@NonNull final Context context, @RawRes final int rawResourceId) {
+        return readRawResource(context, rawResourceId, UTF_8);
+    }
+
+    /**
+     * Reads the raw resource as plain text from the given resource ID, decoding it using the given charset. The whole resource is read,
+     * regardless of its size or compression. For uncompressed resources, the text buffer is sized up front from the resource length, so
+     * it never grows; still, the text is held twice while the resulting string is created. Use the line or chunk reading methods, e.g.
+     * {@link #readRawResourceLines(Context, int, Charset, LineCallback)}, to avoid keeping the whole text in memory.
+     *
+     * @param context       Which context to use for reading
+     * @param rawResourceId The raw resource identifier
+     * @param charset       Which charset the resource is encoded in
+     * @return A text representation of the raw resource, or an empty string if reading fails; never {@code null}
+     */
+    @NonNull
+    public static String readRawResource(@NonNull final Context context, @RawRes final int rawResourceId, @NonNull final Charset charset) {
         InputStream inputStream = null;
         try {
+            final long length = getRawResourceLength(context, rawResourceId);
             inputStream = openRawResource(context, rawResourceId);
-            byte[] b = new byte[inputStream.available()];
-            // noinspection ResultOfMethodCallIgnored - don't care about number of bytes read
-            inputStream.read(b);
-            return new String(b);
+            if (length < 0) {
+                return readText(inputStream, charset);
+            }
+            // a decoder never produces more chars than this, so the builder doesn't need to grow
+            final double maxLength = Math.ceil(length * charset.newDecoder().maxCharsPerByte());
+            return readText(inputStream, charset, (int) Math.min(maxLength, Integer.MAX_VALUE - 8));
         } catch (Exception e) {
             Log.e(TAG, "readRawResource: FAILED!", e);
             return "";
@@ -534,6 +599,149 @@ public final class SillyAndroid {
         }
     }
 
+    /**
+     * Reads the raw resource line by line, without keeping the whole resource in memory. Use this for large text resources.
+     *
+     * @param context       Which context to use for reading
+     * @param rawResourceId The raw resource identifier
+     * @param charset       Which charset the resource is encoded in
+     * @param callback      Receives the lines, can stop the reading early
+     * @return {@code True} if reading finished or was stopped by the callback, {@code false} if reading failed
+     */
+    public static boolean readRawResourceLines(@NonNull final Context context, @RawRes final int rawResourceId, @NonNull final Charset charset,
+                                               @NonNull final LineCallback callback) {
+        InputStream inputStream = null;
+        try {
+            inputStream = openRawResource(context, rawResourceId);
+            readLines(inputStream, charset, callback);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "readRawResourceLines: FAILED!", e);
+            return false;
+        } finally {
+            close(inputStream);
+        }
+    }
+
+    /**
+     * Reads the raw resource in chunks of text, without keeping the whole resource in memory. Use this to feed large text resources into
+     * streaming parsers.
+     *
+     * @param context       Which context to use for reading
+     * @param rawResourceId The raw resource identifier
+     * @param charset       Which charset the resource is encoded in
+     * @param callback      Receives the chunks, can stop the reading early
+     * @return {@code True} if reading finished or was stopped by the callback, {@code false} if reading failed
+     */
+    public static boolean readRawResourceChunks(@NonNull final Context context, @RawRes final int rawResourceId, @NonNull final Charset charset,
+                                                @NonNull final ChunkCallback callback) {
+        InputStream inputStream = null;
+        try {
+            inputStream = openRawResource(context, rawResourceId);
+            readChunks(inputStream, charset, callback);
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "readRawResourceChunks: FAILED!", e);
+            return false;
+        } finally {
+            close(inputStream);
+        }
+    }
+
+    /**
+     * Reads the given stream to the end, decoding it as text. The stream is not closed. The text is held twice while the resulting string
+     * is created, use {@link #readLines(InputStream, Charset, LineCallback)} or {@link #readChunks(InputStream, Charset, ChunkCallback)} to
+     * avoid keeping the whole text in memory.
+     *
+     * @param inputStream Which stream to read
+     * @param charset     Which charset the stream is encoded in
+     * @return The text from the stream, never {@code null}
+     * @throws IOException If reading fails
+     */
+    @NonNull
+    public static String readText(@NonNull final InputStream inputStream, @NonNull final Charset charset) throws IOException {
+        // available() is only a hint, but it's a good guess for the initial capacity of local resources
+        return readText(inputStream, charset, inputStream.available());
+    }
+
+    /**
+     * Reads the given stream line by line, see {@link LineCallback}. The stream is not closed.
+     *
+     * @param inputStream Which stream to read
+     * @param charset     Which charset the stream is encoded in
+     * @param callback    Receives the lines, can stop the reading early
+     * @throws IOException If reading fails
+     */
+    public static void readLines(@NonNull final InputStream inputStream, @NonNull final Charset charset, @NonNull final LineCallback callback)
+            throws IOException {
+        final char[] buffer = acquireReadBuffer();
+        try {
+            final Reader reader = new InputStreamReader(inputStream, charset);
+            // holds the beginning of a line that spans multiple buffers
+            final StringBuilder pending = new StringBuilder();
+            boolean skipLineFeed = false;
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    final char c = buffer[i];
+                    if (skipLineFeed) {
+                        skipLineFeed = false;
+                        if (c == '\n') {
+                            // second half of a "\r\n" terminator
+                            start = i + 1;
+                            continue;
+                        }
+                    }
+                    if (c == '\n' || c == '\r') {
+                        final String line;
+                        if (pending.length() == 0) {
+                            line = new String(buffer, start, i - start);
+                        } else {
+                            line = pending.append(buffer, start, i - start).toString();
+                            pending.setLength(0);
+                        }
+                        if (!callback.onLine(line)) {
+                            return;
+                        }
+                        start = i + 1;
+                        skipLineFeed = c == '\r';
+                    }
+                }
+                pending.append(buffer, start, read - start);
+            }
+            if (pending.length() > 0) {
+                callback.onLine(pending.toString());
+            }
+        } finally {
+            releaseReadBuffer(buffer);
+        }
+    }
+
+    /**
+     * Reads the given stream in chunks of text, see {@link ChunkCallback}. The stream is not closed.
+     *
+     * @param inputStream Which stream to read
+     * @param charset     Which charset the stream is encoded in
+     * @param callback    Receives the chunks, can stop the reading early
+     * @throws IOException If reading fails
+     */
+    public static void readChunks(@NonNull final InputStream inputStream, @NonNull final Charset charset, @NonNull final ChunkCallback callback)
+            throws IOException {
+        final char[] buffer = acquireReadBuffer();
+        try {
+            final Reader reader = new InputStreamReader(inputStream, charset);
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (read > 0 && !callback.onChunk(buffer, read)) {
+                    return;
+                }
+            }
+        } finally {
+            releaseReadBuffer(buffer);
+        }
+    }
+
     /**
      * Opens the input stream to the given raw resource.
      * <b>Note</b>: You need to close the stream manually.
@@ -547,6 +755,68 @@ public final class SillyAndroid {
         return context.getResources().openRawResource(rawResourceId);
     }
 
+    /**
+     * Reads the given stream to the end, starting with a text buffer of the given capacity.
+     */
+    @NonNull
+    private static String readText(@NonNull final InputStream inputStream, @NonNull final Charset charset, final int capacity)
+            throws IOException {
+        final StringBuilder text = new StringBuilder(Math.max(16, capacity));
+        readChunks(inputStream, charset, (buffer, length) -> {
+            text.append(buffer, 0, length);
+            return true;
+        });
+        return text.toString();
+    }
+
+    /**
+     * Gets the length of the given raw resource in bytes, or -1 if it is unknown (e.g. the resource is compressed).
+     */
+    private static long getRawResourceLength(@NonNull final Context context, @RawRes final int rawResourceId) {
+        final AssetFileDescriptor descriptor;
+        try {
+            descriptor = context.getResources().openRawResourceFd(rawResourceId);
+        } catch (Resources.NotFoundException e) {
+            // compressed resources can't be opened as file descriptors
+            return -1L;
+        }
+        if (descriptor == null) {
+            return -1L;
+        }
+        final long length = descriptor.getLength();
+        try {
+            descriptor.close();
+        } catch (IOException ignored) {
+            // only the length was needed
+        }
+        return length;
+    }
+
+    /**
+     * Takes a text reading buffer from the pool, or allocates a new one if the pool is empty.
+     */
+    @NonNull
+    private static char[] acquireReadBuffer() {
+        synchronized (sReadBuffers) {
+            final char[] pooled = sReadBuffers.pollLast();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        return new char[READ_BUFFER_SIZE];
+    }
+
+    /**
+     * Returns the text reading buffer to the pool, unless the pool is full.
+     */
+    private static void releaseReadBuffer(@NonNull final char[] buffer) {
+        synchronized (sReadBuffers) {
+            if (sReadBuffers.size() < MAX_POOLED_READ_BUFFERS) {
+                sReadBuffers.addLast(buffer);
+            }
+        }
+    }
+
     /**
      * Converts a {@link Drawable} into a {@link Bitmap}. Includes an optimization in case the {@link Drawable} in question is already a
      * {@link BitmapDrawable}.
@@ -559,7 +829,29 @@ public final class SillyAndroid {
     @NonNull
     @SuppressWarnings("unused")
     public static Bitmap drawableToBitmap(@NonNull final Drawable drawable, @Px final int width, @Px final int height) {
-        final Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        return drawableToBitmap(drawable, width, height, null);
+    }
+
+    /**
+     * Converts a {@link Drawable} into a {@link Bitmap}, taking the output bitmap from the given pool. Return the bitmap back to the pool
+     * using {@link BitmapPool#release(Bitmap)} once you don't need it anymore.
+     *
+     * @param drawable A Drawable instance to convert
+     * @param width    The width of the new Bitmap
+     * @param height   The height of the new Bitmap
+     * @param pool     Which pool to take the bitmap from, or {@code null} to create a new bitmap
+     * @return A {@link Bitmap} instance constraint to width and height dimensions supplied, never {@code null}
+     */
+    @NonNull
+    @SuppressWarnings("unused")
+    public static Bitmap drawableToBitmap(@NonNull final Drawable drawable, @Px final int width, @Px final int height,
+                                          @Nullable final BitmapPool pool) {
+        final Bitmap result;
+        if (pool == null) {
+            result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            result = pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+        }
         final Canvas canvas = new Canvas(result);
         drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
         drawable.draw(canvas);
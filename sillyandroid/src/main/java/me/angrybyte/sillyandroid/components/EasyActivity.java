@@ -55,7 +55,7 @@ public class EasyActivity extends BlockingLifecycleActivity implements LayoutWra
     public static final String KEY_DIALOG_MANAGER = DialogManager.class.getSimpleName().toUpperCase(Locale.getDefault());
 
     private ViewTreeObserver.OnGlobalLayoutListener mKeyboardListener;
-    private DialogManager mDialogManager;
+    private DialogManagerImpl mDialogManager;
 
     // <editor-fold desc="Public API">
 
@@ -355,6 +355,13 @@ public class EasyActivity extends BlockingLifecycleActivity implements LayoutWra
         super.onRestoreInstanceState(savedInstanceState);
     }
 
+    @Override
+    @CallSuper
+    public void onTrimMemory(final int level) {
+        super.onTrimMemory(level);
+        mDialogManager.onTrimMemory(level);
+    }
+
     @Override
     @CallSuper
     protected void onBlockingStop() {
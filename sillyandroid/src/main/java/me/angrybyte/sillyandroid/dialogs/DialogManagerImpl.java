@@ -1,9 +1,11 @@
 package me.angrybyte.sillyandroid.dialogs;
 
 import android.app.Dialog;
+import android.content.ComponentCallbacks2;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.DialogFragment;
@@ -11,9 +13,11 @@ import android.support.v4.app.FragmentManager;
 import android.util.Log;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -26,6 +30,45 @@ public class DialogManagerImpl implements DialogManager {
 
     private static final String TAG = DialogManagerImpl.class.getSimpleName();
 
+    /**
+     * An opt-in listener used to measure dialog costs, i.e. creation and show latency. All durations are in nanoseconds.
+     */
+    public interface DialogManagerMetricsListener {
+
+        /**
+         * Invoked by the manager after the {@link DialogManagerCallback} created a new dialog or dialog fragment instance.
+         *
+         * @param dialogId      Which dialog was created
+         * @param creationNanos How much time was spent inside of the creation callback
+         */
+        void onDialogCreated(final int dialogId, final long creationNanos);
+
+        /**
+         * Invoked by the manager when a dialog is shown to the user for the first time after it was requested.
+         *
+         * @param dialogId     Which dialog was shown
+         * @param latencyNanos How much time passed from the show request (or from the moment a restored dialog started being created)
+         *                     until the dialog was shown
+         */
+        void onDialogShowLatency(final int dialogId, final long latencyNanos);
+
+        /**
+         * Invoked by the manager when the number of live dialog instances changes.
+         *
+         * @param liveDialogs How many dialog and dialog fragment instances the manager currently holds
+         */
+        void onLiveDialogsChanged(final int liveDialogs);
+
+        /**
+         * Invoked by the manager after {@link DialogManagerImpl#restoreState(Parcelable, boolean)} or
+         * {@link DialogManagerImpl#recreateAll(boolean)}.
+         *
+         * @param restoredDialogs How many dialog configurations were restored
+         * @param createdDialogs  How many of those were immediately created (less than restored when lazy restoration is enabled)
+         */
+        void onDialogsRestored(final int restoredDialogs, final int createdDialogs);
+    }
+
     static final class DialogInfo implements Parcelable {
 
         public final int id;
@@ -162,11 +205,19 @@ public class DialogManagerImpl implements DialogManager {
     private DialogManagerCallback mCallback;
     @Nullable
     private DialogManagerListener mListener;
+    @Nullable
+    private DialogManagerMetricsListener mMetricsListener;
     @NonNull
     private final WeakReference<FragmentManager> mFragmentManagerRef;
     private Map<Integer, DialogInfo> mDialogConfigs = new LinkedHashMap<>();
     private Map<Integer, Dialog> mDialogInstances = new LinkedHashMap<>();
     private Map<Integer, DialogFragment> mDialogFragmentInstances = new LinkedHashMap<>();
+    private Map<Integer, DialogInfo> mPendingConfigs = new LinkedHashMap<>();
+    private boolean mLazyRestoreEnabled;
+    private boolean mShowPendingOnDismiss;
+    private Set<Integer> mHiddenIds = new LinkedHashSet<>();
+    private int mMaxHiddenDialogs = Integer.MAX_VALUE;
+    private Map<Integer, Long> mShowRequestTimes = new LinkedHashMap<>();
 
     public DialogManagerImpl(@NonNull final FragmentManager fragmentManager) {
         mFragmentManagerRef = new WeakReference<>(fragmentManager);
@@ -194,6 +245,80 @@ public class DialogManagerImpl implements DialogManager {
         return mListener;
     }
 
+    /**
+     * Sets a permanent metrics listener for this manager instance. Timings are measured only while a metrics listener is set.
+     *
+     * @param metricsListener A new instance that is to be used to listen for dialog metrics; set to {@code null} to remove
+     */
+    public void setMetricsListener(@Nullable final DialogManagerMetricsListener metricsListener) {
+        mMetricsListener = metricsListener;
+    }
+
+    /**
+     * Gets the instance that was previously set by {@link #setMetricsListener(DialogManagerMetricsListener)}.
+     *
+     * @return Either the metrics listener instance, or {@code null} if none was set
+     */
+    @Nullable
+    public DialogManagerMetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
+    /**
+     * Enables or disables the lazy restoration mode. When enabled, {@link #restoreState(Parcelable, boolean)} and {@link #recreateAll(boolean)}
+     * only record the dialog configurations instead of creating all dialog instances right away. If dialogs should be shown immediately,
+     * only the top-most (most recently shown) dialog is created and shown; each dialog below it is created and shown when the one above
+     * gets dismissed. All remaining dialogs are created on demand when {@link #unhideAll()} is called. Dialogs that were not created yet
+     * are reported as not showing by {@link #isDialogShowing(int)}. Disabled by default.
+     *
+     * @param enabled {@code True} to create dialogs on demand when restoring, {@code false} to create all of them immediately
+     */
+    public void setLazyRestoreEnabled(final boolean enabled) {
+        mLazyRestoreEnabled = enabled;
+    }
+
+    /**
+     * Checks whether the lazy restoration mode was enabled using {@link #setLazyRestoreEnabled(boolean)}.
+     *
+     * @return {@code True} if dialogs are created on demand when restoring, {@code false} otherwise
+     */
+    public boolean isLazyRestoreEnabled() {
+        return mLazyRestoreEnabled;
+    }
+
+    /**
+     * Limits how many hidden dialog instances the manager keeps alive after {@link #hideAll()}. When the limit is exceeded, the oldest
+     * dialogs hidden by the manager are destroyed but their configurations are kept, so {@link #unhideAll()} transparently recreates them
+     * through the {@link DialogManagerCallback}. Unlimited by default.
+     *
+     * @param maxHiddenDialogs How many hidden dialog instances to keep alive, {@code 0} to destroy all of them when hiding
+     */
+    public void setMaxHiddenDialogs(@IntRange(from = 0) final int maxHiddenDialogs) {
+        mMaxHiddenDialogs = Math.max(0, maxHiddenDialogs);
+    }
+
+    /**
+     * Gets the value previously set by {@link #setMaxHiddenDialogs(int)}.
+     *
+     * @return How many hidden dialog instances the manager keeps alive
+     */
+    @IntRange(from = 0)
+    public int getMaxHiddenDialogs() {
+        return mMaxHiddenDialogs;
+    }
+
+    /**
+     * Forward your component's {@link ComponentCallbacks2#onTrimMemory(int)} calls here. When memory is running low, all dialog instances
+     * hidden by {@link #hideAll()} are destroyed and only their configurations are kept, as described in {@link #setMaxHiddenDialogs(int)}.
+     *
+     * @param level The memory trim level, as given to the component callback
+     */
+    public void onTrimMemory(final int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            releaseHiddenDialogs(0);
+        }
+    }
+
     @Override
     public void showDialog(final int dialogId) {
         showDialog(dialogId, null);
@@ -201,6 +326,7 @@ public class DialogManagerImpl implements DialogManager {
 
     @Override
     public void showDialog(final int dialogId, @Nullable final Bundle config) {
+        markShowRequested(dialogId);
         final Dialog created = createDialog(dialogId, config);
         if (created == null) { return; }
         showDialogInternal(dialogId, created);
@@ -213,6 +339,7 @@ public class DialogManagerImpl implements DialogManager {
 
     @Override
     public void showDialogFragment(final int dialogId, @Nullable final Bundle config) {
+        markShowRequested(dialogId);
         final DialogFragment created = createDialogFragment(dialogId, config);
         if (created == null) { return; }
         showDialogFragmentInternal(dialogId, created);
@@ -234,11 +361,22 @@ public class DialogManagerImpl implements DialogManager {
 
     @Override
     public void dismissDialog(final int dialogId) {
+        if (mPendingConfigs.remove(dialogId) != null) {
+            // never created (or released while hidden), only forget the config
+            mDialogConfigs.remove(dialogId);
+            if (mPendingConfigs.isEmpty()) {
+                mShowPendingOnDismiss = false;
+            }
+            return;
+        }
         final Dialog dialog = mDialogInstances.get(dialogId);
         if (dialog != null) {
             dialog.dismiss();
             mDialogInstances.remove(dialogId);
             mDialogConfigs.remove(dialogId);
+            mHiddenIds.remove(dialogId);
+            notifyLiveDialogsChanged();
+            showTopPending();
             return;
         }
         final DialogFragment dialogFragment = mDialogFragmentInstances.get(dialogId);
@@ -246,6 +384,9 @@ public class DialogManagerImpl implements DialogManager {
             dialogFragment.dismiss();
             mDialogFragmentInstances.remove(dialogId);
             mDialogConfigs.remove(dialogId);
+            mHiddenIds.remove(dialogId);
+            notifyLiveDialogsChanged();
+            showTopPending();
         }
     }
 
@@ -272,30 +413,43 @@ public class DialogManagerImpl implements DialogManager {
 
     @Override
     public void unhideAll() {
-        for (Dialog iDialog : mDialogInstances.values()) {
-            if (!iDialog.isShowing()) {
-                iDialog.show();
+        // walk through the configs in the original order, showing brings a dialog to front so this keeps the stack intact
+        mShowPendingOnDismiss = false;
+        final Collection<DialogInfo> configs = new ArrayList<>(mDialogConfigs.values());
+        for (DialogInfo iDialogInfo : configs) {
+            if (mPendingConfigs.containsKey(iDialogInfo.id)) {
+                // lazily restored or released, create it now
+                createFromConfig(iDialogInfo, true);
+                continue;
             }
-        }
-        for (DialogFragment iDialogFragment : mDialogFragmentInstances.values()) {
-            if (iDialogFragment.getDialog() != null && !iDialogFragment.getDialog().isShowing()) {
-                iDialogFragment.getDialog().show();
+            final Dialog dialog = mDialogInstances.get(iDialogInfo.id);
+            if (dialog != null && !dialog.isShowing()) {
+                dialog.show();
+            }
+            final DialogFragment dialogFragment = mDialogFragmentInstances.get(iDialogInfo.id);
+            if (dialogFragment != null && dialogFragment.getDialog() != null && !dialogFragment.getDialog().isShowing()) {
+                dialogFragment.getDialog().show();
             }
         }
+        mHiddenIds.clear();
     }
 
     @Override
     public void hideAll() {
-        for (Dialog iDialog : mDialogInstances.values()) {
-            if (iDialog.isShowing()) {
-                iDialog.hide();
+        for (Map.Entry<Integer, Dialog> iEntry : mDialogInstances.entrySet()) {
+            if (iEntry.getValue().isShowing()) {
+                iEntry.getValue().hide();
+                mHiddenIds.add(iEntry.getKey());
             }
         }
-        for (DialogFragment iDialogFragment : mDialogFragmentInstances.values()) {
-            if (iDialogFragment.getDialog() != null && iDialogFragment.getDialog().isShowing()) {
-                iDialogFragment.getDialog().hide();
+        for (Map.Entry<Integer, DialogFragment> iEntry : mDialogFragmentInstances.entrySet()) {
+            final Dialog dialog = iEntry.getValue().getDialog();
+            if (dialog != null && dialog.isShowing()) {
+                dialog.hide();
+                mHiddenIds.add(iEntry.getKey());
             }
         }
+        releaseHiddenDialogs(mMaxHiddenDialogs);
     }
 
     @Override
@@ -311,6 +465,7 @@ public class DialogManagerImpl implements DialogManager {
             }
         }
         clearAllMappings();
+        notifyLiveDialogsChanged();
     }
 
     @Override
@@ -318,6 +473,7 @@ public class DialogManagerImpl implements DialogManager {
         dismissAll();
         mCallback = null;
         mListener = null;
+        mMetricsListener = null;
         mFragmentManagerRef.clear();
     }
 
@@ -329,9 +485,15 @@ public class DialogManagerImpl implements DialogManager {
             Log.w(TAG, "Can't show a dialog without the callback being set prior to this call");
             return null;
         }
+        final long start = mMetricsListener == null ? 0L : System.nanoTime();
         final Dialog created = mCallback.onCreateDialog(dialogId, config);
+        mPendingConfigs.remove(dialogId);
         mDialogConfigs.put(dialogId, new DialogInfo(dialogId, config, false));
-        mDialogInstances.put(dialogId, created);
+        mHiddenIds.remove(dialogId);
+        if (created != null) {
+            mDialogInstances.put(dialogId, created);
+            notifyCreated(dialogId, start);
+        }
         return created;
     }
 
@@ -341,23 +503,38 @@ public class DialogManagerImpl implements DialogManager {
             Log.w(TAG, "Can't create a dialog fragment without the callback being set prior to this call");
             return null;
         }
+        final long start = mMetricsListener == null ? 0L : System.nanoTime();
         final DialogFragment created = mCallback.onCreateDialogFragment(dialogId, config);
+        mPendingConfigs.remove(dialogId);
         mDialogConfigs.put(dialogId, new DialogInfo(dialogId, config, true));
-        mDialogFragmentInstances.put(dialogId, created);
+        mHiddenIds.remove(dialogId);
+        if (created != null) {
+            mDialogFragmentInstances.put(dialogId, created);
+            notifyCreated(dialogId, start);
+        }
         return created;
     }
 
     private void showDialogInternal(final int dialogId, @NonNull final Dialog instance) {
         instance.setOnShowListener(dialog -> {
+            notifyShown(dialogId);
             if (mListener != null) {
                 mListener.onDialogShown(dialogId);
             }
         });
         instance.setOnDismissListener(dialog -> {
-            if (mListener != null) {
-                mListener.onDialogDismissed(dialogId);
+            final boolean isManaged = mDialogInstances.get(dialogId) == instance;
+            if (isManaged) {
                 mDialogConfigs.remove(dialogId);
                 mDialogInstances.remove(dialogId);
+                mHiddenIds.remove(dialogId);
+                notifyLiveDialogsChanged();
+            }
+            if (mListener != null) {
+                mListener.onDialogDismissed(dialogId);
+            }
+            if (isManaged) {
+                showTopPending();
             }
         });
         instance.show();
@@ -373,42 +550,163 @@ public class DialogManagerImpl implements DialogManager {
         // DialogFragment#getDialog() is `null` prior to this call
         manager.executePendingTransactions();
         instance.getDialog().setOnShowListener(dialog -> {
+            notifyShown(dialogId);
             if (mListener != null) {
                 mListener.onDialogShown(dialogId);
             }
         });
         instance.getDialog().setOnDismissListener(dialog -> {
-            if (mListener != null) {
-                mListener.onDialogDismissed(dialogId);
+            final boolean isManaged = mDialogFragmentInstances.get(dialogId) == instance;
+            if (isManaged) {
                 mDialogConfigs.remove(dialogId);
                 mDialogFragmentInstances.remove(dialogId);
+                mHiddenIds.remove(dialogId);
+                notifyLiveDialogsChanged();
+            }
+            if (mListener != null) {
+                mListener.onDialogDismissed(dialogId);
+            }
+            if (isManaged) {
+                showTopPending();
             }
         });
+        if (instance.getDialog().isShowing()) {
+            // the fragment shows its dialog while executing the transaction, before the listener above is set
+            notifyShown(dialogId);
+        }
     }
 
     private void recreateFromConfigs(@NonNull final Collection<DialogInfo> configs, boolean showNow) {
         clearAllMappings();
-        for (DialogInfo iDialogInfo : configs) {
-            if (!iDialogInfo.isFragment) {
-                final Dialog created = createDialog(iDialogInfo.id, iDialogInfo.config);
-                if (created == null) { return; }
-                if (showNow) {
-                    showDialogInternal(iDialogInfo.id, created);
-                }
-            } else {
-                final DialogFragment created = createDialogFragment(iDialogInfo.id, iDialogInfo.config);
-                if (created == null) { return; }
-                if (showNow) {
-                    showDialogFragmentInternal(iDialogInfo.id, created);
-                }
+        if (mLazyRestoreEnabled) {
+            // only record the configs, instances are created on demand
+            for (DialogInfo iDialogInfo : configs) {
+                mDialogConfigs.put(iDialogInfo.id, iDialogInfo);
+                mPendingConfigs.put(iDialogInfo.id, iDialogInfo);
+            }
+            mShowPendingOnDismiss = showNow;
+            showTopPending();
+        } else {
+            for (DialogInfo iDialogInfo : configs) {
+                if (!createFromConfig(iDialogInfo, showNow)) { break; }
+            }
+        }
+        if (mMetricsListener != null) {
+            mMetricsListener.onDialogsRestored(configs.size(), mDialogInstances.size() + mDialogFragmentInstances.size());
+        }
+    }
+
+    private boolean createFromConfig(@NonNull final DialogInfo dialogInfo, final boolean showNow) {
+        if (showNow) {
+            markShowRequested(dialogInfo.id);
+        }
+        if (!dialogInfo.isFragment) {
+            final Dialog created = createDialog(dialogInfo.id, dialogInfo.config);
+            if (created == null) { return false; }
+            if (showNow) {
+                showDialogInternal(dialogInfo.id, created);
+            }
+        } else {
+            final DialogFragment created = createDialogFragment(dialogInfo.id, dialogInfo.config);
+            if (created == null) { return false; }
+            if (showNow) {
+                showDialogFragmentInternal(dialogInfo.id, created);
+            }
+        }
+        return true;
+    }
+
+    private void showTopPending() {
+        if (mShowPendingOnDismiss && !mPendingConfigs.isEmpty()) {
+            DialogInfo topMost = null;
+            for (DialogInfo iDialogInfo : mPendingConfigs.values()) {
+                topMost = iDialogInfo;
+            }
+            if (!createFromConfig(topMost, true)) {
+                // creator doesn't know about this dialog anymore, move on to the next one
+                mPendingConfigs.remove(topMost.id);
+                mDialogConfigs.remove(topMost.id);
+                showTopPending();
+                return;
+            }
+        }
+        if (mPendingConfigs.isEmpty()) {
+            // everything is restored, dialogs released later on should not pop up when others are dismissed
+            mShowPendingOnDismiss = false;
+        }
+    }
+
+    private void releaseHiddenDialogs(final int keepAlive) {
+        // find all instances that are still hidden by the manager, oldest first
+        final List<Integer> hiddenIds = new ArrayList<>();
+        for (Integer iDialogId : mDialogConfigs.keySet()) {
+            if (!mHiddenIds.contains(iDialogId)) {
+                continue;
             }
+            final Dialog dialog = mDialogInstances.get(iDialogId);
+            final DialogFragment dialogFragment = mDialogFragmentInstances.get(iDialogId);
+            if (dialog != null && !dialog.isShowing()) {
+                hiddenIds.add(iDialogId);
+            } else if (dialogFragment != null && dialogFragment.getDialog() != null && !dialogFragment.getDialog().isShowing()) {
+                hiddenIds.add(iDialogId);
+            }
+        }
+        if (hiddenIds.size() <= keepAlive) {
+            return;
         }
+
+        // destroy the instances silently, but keep the configs around for re-creation (lazy restore still shows them on dismiss)
+        for (Integer iDialogId : hiddenIds.subList(0, hiddenIds.size() - keepAlive)) {
+            final Dialog dialog = mDialogInstances.remove(iDialogId);
+            if (dialog != null) {
+                dialog.setOnDismissListener(null);
+                dialog.dismiss();
+            }
+            final DialogFragment dialogFragment = mDialogFragmentInstances.remove(iDialogId);
+            if (dialogFragment != null) {
+                dialogFragment.getDialog().setOnDismissListener(null);
+                dialogFragment.dismissAllowingStateLoss();
+            }
+            mHiddenIds.remove(iDialogId);
+            mPendingConfigs.put(iDialogId, mDialogConfigs.get(iDialogId));
+        }
+        notifyLiveDialogsChanged();
     }
 
     private void clearAllMappings() {
         mDialogConfigs.clear();
         mDialogInstances.clear();
         mDialogFragmentInstances.clear();
+        mPendingConfigs.clear();
+        mShowPendingOnDismiss = false;
+        mHiddenIds.clear();
+        mShowRequestTimes.clear();
+    }
+
+    private void markShowRequested(final int dialogId) {
+        if (mMetricsListener != null) {
+            mShowRequestTimes.put(dialogId, System.nanoTime());
+        }
+    }
+
+    private void notifyCreated(final int dialogId, final long start) {
+        if (mMetricsListener != null) {
+            mMetricsListener.onDialogCreated(dialogId, System.nanoTime() - start);
+            notifyLiveDialogsChanged();
+        }
+    }
+
+    private void notifyShown(final int dialogId) {
+        final Long requested = mShowRequestTimes.remove(dialogId);
+        if (mMetricsListener != null && requested != null) {
+            mMetricsListener.onDialogShowLatency(dialogId, System.nanoTime() - requested);
+        }
+    }
+
+    private void notifyLiveDialogsChanged() {
+        if (mMetricsListener != null) {
+            mMetricsListener.onLiveDialogsChanged(mDialogInstances.size() + mDialogFragmentInstances.size());
+        }
     }
 
     @NonNull
@@ -0,0 +1,379 @@
+package me.angrybyte.sillyandroid.dialogs;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link DialogManager} wrapper that accepts show, hide and dismiss calls from any thread. Calls made off the main thread never block,
+ * they are queued and then forwarded to the wrapped manager in batches, using one main looper post per batch. A batch collects all calls
+ * made until the main thread gets to run it, so there is at most one post per frame. Redundant calls within a batch are collapsed, i.e.
+ * a dismiss cancels all queued shows of the same dialog, and a later show replaces an earlier one.
+ * <p>
+ * Only {@link #showDialog(int, Bundle)}, {@link #showDialogFragment(int, Bundle)}, {@link #dismissDialog(int)}, {@link #hideAll()},
+ * {@link #unhideAll()}, {@link #dismissAll()}, {@link #recreateAll(boolean)} and {@link #dispose()} (plus their overloads) are safe to call
+ * from background threads. On the main thread, all other methods first run the queued calls, so the order of calls is always preserved.
+ * Queued calls are never run off the main thread: {@link #isDialogShowing(int)} then answers from the queued calls (see its docs), while
+ * {@link #onTrimMemory(int)}, {@link #saveState()} and {@link #restoreState(Parcelable, boolean)} throw an {@link IllegalStateException}.
+ */
+public class ThreadSafeDialogManager implements DialogManager {
+
+    private static final int SHOW_DIALOG = 1;
+    private static final int SHOW_DIALOG_FRAGMENT = 2;
+    private static final int DISMISS_DIALOG = 3;
+    private static final int HIDE_ALL = 4;
+    private static final int UNHIDE_ALL = 5;
+    private static final int DISMISS_ALL = 6;
+    private static final int RECREATE_ALL = 7;
+    private static final int DISPOSE = 8;
+
+    private static final class Call {
+
+        final int type;
+        final int dialogId;
+        @Nullable
+        final Bundle config;
+        final boolean showNow;
+
+        Call(final int type, final int dialogId, @Nullable final Bundle config, final boolean showNow) {
+            this.type = type;
+            this.dialogId = dialogId;
+            this.config = config;
+            this.showNow = showNow;
+        }
+
+        boolean isShow() {
+            return type == SHOW_DIALOG || type == SHOW_DIALOG_FRAGMENT;
+        }
+    }
+
+    @NonNull
+    private final DialogManager mDelegate;
+    @NonNull
+    private final Handler mMainHandler;
+    private final Object mLock = new Object();
+    private final List<Call> mQueue = new ArrayList<>();
+    private List<Call> mRunning = Collections.emptyList();
+    private final Set<Integer> mKnownIds = new HashSet<>();
+    private Set<Integer> mShowingSnapshot = Collections.emptySet();
+    private boolean mFlushPosted;
+    private final Runnable mFlushRunnable = this::flush;
+
+    /**
+     * Wraps the given manager, forwarding all calls to it on the main thread.
+     *
+     * @param delegate Which manager to wrap, usually a {@link DialogManagerImpl}
+     */
+    public ThreadSafeDialogManager(@NonNull final DialogManager delegate) {
+        this(delegate, new Handler(Looper.getMainLooper()));
+    }
+
+    @VisibleForTesting
+    ThreadSafeDialogManager(@NonNull final DialogManager delegate, @NonNull final Handler mainHandler) {
+        mDelegate = delegate;
+        mMainHandler = mainHandler;
+    }
+
+    /**
+     * Gets the manager wrapped by this instance. Note that the wrapped manager is not thread-safe.
+     *
+     * @return The wrapped manager instance
+     */
+    @NonNull
+    public DialogManager getDelegate() {
+        return mDelegate;
+    }
+
+    /**
+     * Runs the queued calls and then forwards the memory trim level to the wrapped manager, if it's a {@link DialogManagerImpl}.
+     * See {@link DialogManagerImpl#onTrimMemory(int)} for details.
+     *
+     * @param level The memory trim level, as given to the component callback
+     */
+    public void onTrimMemory(final int level) {
+        checkMainThread("onTrimMemory");
+        flush();
+        if (mDelegate instanceof DialogManagerImpl) {
+            ((DialogManagerImpl) mDelegate).onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void setCallback(@Nullable final DialogManagerCallback callback) {
+        mDelegate.setCallback(callback);
+    }
+
+    @Nullable
+    @Override
+    public DialogManagerCallback getCallback() {
+        return mDelegate.getCallback();
+    }
+
+    @Override
+    public void setListener(@Nullable final DialogManagerListener listener) {
+        mDelegate.setListener(listener);
+    }
+
+    @Nullable
+    @Override
+    public DialogManagerListener getListener() {
+        return mDelegate.getListener();
+    }
+
+    @Override
+    public void showDialog(final int dialogId) {
+        showDialog(dialogId, null);
+    }
+
+    @Override
+    public void showDialog(final int dialogId, @Nullable final Bundle config) {
+        enqueue(new Call(SHOW_DIALOG, dialogId, config, true));
+    }
+
+    @Override
+    public void showDialogFragment(final int dialogId) {
+        showDialogFragment(dialogId, null);
+    }
+
+    @Override
+    public void showDialogFragment(final int dialogId, @Nullable final Bundle config) {
+        enqueue(new Call(SHOW_DIALOG_FRAGMENT, dialogId, config, true));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Off the main thread, queued calls are not run and the wrapped manager is never touched. The answer is then based on the latest
+     * queued call affecting the given dialog (a queued show means it's showing, a queued dismiss or hide means it's not). When nothing
+     * relevant is queued, the answer comes from a snapshot the main thread takes after running each batch, so changes that didn't go
+     * through this wrapper (i.e. the user dismissing a dialog) show up only after the next batch or main thread query.
+     */
+    @Override
+    public boolean isDialogShowing(final int dialogId) {
+        if (isMainThread()) {
+            flush();
+            final boolean showing = mDelegate.isDialogShowing(dialogId);
+            synchronized (mLock) {
+                mKnownIds.add(dialogId);
+                if (showing != mShowingSnapshot.contains(dialogId)) {
+                    final Set<Integer> snapshot = new HashSet<>(mShowingSnapshot);
+                    if (showing) {
+                        snapshot.add(dialogId);
+                    } else {
+                        snapshot.remove(dialogId);
+                    }
+                    mShowingSnapshot = snapshot;
+                }
+            }
+            return showing;
+        }
+        synchronized (mLock) {
+            Boolean showing = findVisibility(mQueue, dialogId);
+            if (showing == null) {
+                // the main thread may be running the previous batch right now
+                showing = findVisibility(mRunning, dialogId);
+            }
+            return showing != null ? showing : mShowingSnapshot.contains(dialogId);
+        }
+    }
+
+    @Override
+    public void dismissDialog(final int dialogId) {
+        enqueue(new Call(DISMISS_DIALOG, dialogId, null, false));
+    }
+
+    @NonNull
+    @Override
+    public Parcelable saveState() {
+        checkMainThread("saveState");
+        flush();
+        return mDelegate.saveState();
+    }
+
+    @Override
+    public void restoreState(@Nullable final Parcelable state, final boolean showNow) {
+        checkMainThread("restoreState");
+        flush();
+        mDelegate.restoreState(state, showNow);
+        publishSnapshot();
+    }
+
+    @Override
+    public void recreateAll(final boolean showNow) {
+        enqueue(new Call(RECREATE_ALL, 0, null, showNow));
+    }
+
+    @Override
+    public void unhideAll() {
+        enqueue(new Call(UNHIDE_ALL, 0, null, false));
+    }
+
+    @Override
+    public void hideAll() {
+        enqueue(new Call(HIDE_ALL, 0, null, false));
+    }
+
+    @Override
+    public void dismissAll() {
+        enqueue(new Call(DISMISS_ALL, 0, null, false));
+    }
+
+    @Override
+    public void dispose() {
+        enqueue(new Call(DISPOSE, 0, null, false));
+    }
+
+    /* Private helpers */
+
+    private boolean isMainThread() {
+        return mMainHandler.getLooper().getThread() == Thread.currentThread();
+    }
+
+    private void checkMainThread(@NonNull final String method) {
+        if (!isMainThread()) {
+            throw new IllegalStateException(method + "() runs the queued calls and must be called from the main thread");
+        }
+    }
+
+    private void enqueue(@NonNull final Call call) {
+        final boolean shouldPost;
+        synchronized (mLock) {
+            collapse(call);
+            mQueue.add(call);
+            if (call.isShow() || call.type == DISMISS_DIALOG) {
+                mKnownIds.add(call.dialogId);
+            }
+            shouldPost = !mFlushPosted;
+            mFlushPosted = true;
+        }
+        if (isMainThread()) {
+            // no need to wait for the next loop, just run everything in order
+            flush();
+        } else if (shouldPost) {
+            mMainHandler.post(mFlushRunnable);
+        }
+    }
+
+    /**
+     * Drops queued calls made redundant by the given call. Needs to be invoked while holding the lock.
+     */
+    private void collapse(@NonNull final Call call) {
+        if (call.type == DISMISS_ALL || call.type == DISPOSE) {
+            // nothing queued before matters anymore
+            mQueue.clear();
+            return;
+        }
+        if (call.type == HIDE_ALL || call.type == UNHIDE_ALL) {
+            // hiding and un-hiding back and forth results in the latest visibility
+            final int lastIndex = mQueue.size() - 1;
+            if (lastIndex >= 0 && (mQueue.get(lastIndex).type == HIDE_ALL || mQueue.get(lastIndex).type == UNHIDE_ALL)) {
+                mQueue.remove(lastIndex);
+            }
+            return;
+        }
+        if (call.isShow() || call.type == DISMISS_DIALOG) {
+            // a later show replaces the earlier one, a dismiss cancels all earlier calls for the same dialog
+            final Iterator<Call> iterator = mQueue.iterator();
+            while (iterator.hasNext()) {
+                final Call iCall = iterator.next();
+                if (iCall.dialogId == call.dialogId && (iCall.isShow() || iCall.type == call.type)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the visibility the given dialog has after running the given calls, or {@code null} if none of them affect it.
+     * Needs to be invoked while holding the lock.
+     */
+    @Nullable
+    private Boolean findVisibility(@NonNull final List<Call> calls, final int dialogId) {
+        for (int i = calls.size() - 1; i >= 0; i--) {
+            final Call iCall = calls.get(i);
+            if (iCall.dialogId == dialogId && (iCall.isShow() || iCall.type == DISMISS_DIALOG)) {
+                return iCall.isShow();
+            }
+            if (iCall.type == HIDE_ALL || iCall.type == DISMISS_ALL || iCall.type == DISPOSE) {
+                return false;
+            }
+        }
+        return null;
+    }
+
+    private void flush() {
+        final List<Call> calls;
+        synchronized (mLock) {
+            mFlushPosted = false;
+            if (mQueue.isEmpty()) {
+                return;
+            }
+            calls = new ArrayList<>(mQueue);
+            mQueue.clear();
+            mRunning = calls;
+        }
+        for (Call iCall : calls) {
+            switch (iCall.type) {
+                case SHOW_DIALOG:
+                    mDelegate.showDialog(iCall.dialogId, iCall.config);
+                    break;
+                case SHOW_DIALOG_FRAGMENT:
+                    mDelegate.showDialogFragment(iCall.dialogId, iCall.config);
+                    break;
+                case DISMISS_DIALOG:
+                    mDelegate.dismissDialog(iCall.dialogId);
+                    break;
+                case HIDE_ALL:
+                    mDelegate.hideAll();
+                    break;
+                case UNHIDE_ALL:
+                    mDelegate.unhideAll();
+                    break;
+                case DISMISS_ALL:
+                    mDelegate.dismissAll();
+                    break;
+                case RECREATE_ALL:
+                    mDelegate.recreateAll(iCall.showNow);
+                    break;
+                case DISPOSE:
+                    mDelegate.dispose();
+                    break;
+                default:
+                    break;
+            }
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * Publishes the visibility of all dialogs this wrapper knows about, to be used by background queries. Main thread only.
+     */
+    private void publishSnapshot() {
+        final List<Integer> knownIds;
+        synchronized (mLock) {
+            knownIds = new ArrayList<>(mKnownIds);
+        }
+        final Set<Integer> showing = new HashSet<>();
+        for (Integer iDialogId : knownIds) {
+            if (mDelegate.isDialogShowing(iDialogId)) {
+                showing.add(iDialogId);
+            }
+        }
+        synchronized (mLock) {
+            mShowingSnapshot = showing;
+            mRunning = Collections.emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Px;
+
+/**
+ * A pool of reusable {@link Bitmap}s. Methods that create bitmaps (such as {@link Coloring#colorBitmap(Bitmap, int, BitmapPool)}) can
+ * take their output bitmaps from a pool, and callers can return the bitmaps they don't need anymore back to the pool. This reduces the
+ * garbage collection pressure when many same-sized bitmaps are created, for example when recoloring images in scrolling lists.
+ *
+ * @see LruBitmapPool
+ */
+public interface BitmapPool {
+
+    /**
+     * Takes a bitmap with the given size and config from the pool, or creates a new one if there is no such bitmap in the pool.
+     * The returned bitmap is always mutable and fully transparent.
+     *
+     * @param width  Width of the bitmap
+     * @param height Height of the bitmap
+     * @param config Which bitmap config to use
+     * @return A bitmap ready for drawing, never {@code null}
+     */
+    @NonNull
+    Bitmap acquire(@Px int width, @Px int height, @NonNull Bitmap.Config config);
+
+    /**
+     * Returns the given bitmap to the pool. The pool decides whether to keep the bitmap for reuse or to recycle it, so the bitmap must
+     * not be used by the caller after this call.
+     *
+     * @param bitmap Which bitmap to return
+     */
+    void release(@NonNull Bitmap bitmap);
+
+    /**
+     * Recycles and removes all bitmaps currently kept in the pool.
+     */
+    void clear();
+
+}
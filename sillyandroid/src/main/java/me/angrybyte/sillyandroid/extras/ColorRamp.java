@@ -0,0 +1,199 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.drawable.GradientDrawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.FloatRange;
+import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A precomputed table of colors interpolated between multiple color stops, i.e. a gradient sampled into a fixed number of entries.
+ * All interpolation is done once, when the ramp is created; looking up a color later (e.g. for each cell of a heatmap, on each frame of a
+ * progress animation) is a single array access.
+ * <p>
+ * Colors can be interpolated either directly in sRGB (the same as {@link GradientDrawable} and most other Android gradients do), or in
+ * linear light, which avoids the dark, muddy middle colors between saturated stops. Alpha is always interpolated linearly. Ramps are
+ * immutable and thread-safe.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ColorRamp {
+
+    /**
+     * Interpolates the sRGB color components directly
+     */
+    public static final int SPACE_SRGB = 0;
+    /**
+     * Converts the color components to linear light, interpolates and converts back to sRGB
+     */
+    public static final int SPACE_LINEAR = 1;
+
+    @IntDef({SPACE_SRGB, SPACE_LINEAR})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface InterpolationSpace {}
+
+    @NonNull
+    private final int[] mColors;
+    @NonNull
+    private final int[] mStops;
+    private final boolean mEvenStops;
+    @InterpolationSpace
+    private final int mSpace;
+
+    /**
+     * Creates a new ramp with evenly distributed color stops.
+     *
+     * @param stops Colors of the stops, at least one
+     * @param size  How many colors to precompute, at least 2
+     * @param space Which color space to interpolate in, see {@link #SPACE_SRGB} and {@link #SPACE_LINEAR}
+     */
+    public ColorRamp(@NonNull final int[] stops, @IntRange(from = 2) final int size, @InterpolationSpace final int space) {
+        this(stops, null, size, space);
+    }
+
+    /**
+     * Creates a new ramp. Before the first stop position all colors are the same as the first stop, and after the last stop position the
+     * same as the last stop.
+     *
+     * @param stops     Colors of the stops, at least one
+     * @param positions Positions of the stops in range [0, 1], non-decreasing; same length as {@code stops}. Set to {@code null} to
+     *                  distribute the stops evenly
+     * @param size      How many colors to precompute, at least 2
+     * @param space     Which color space to interpolate in, see {@link #SPACE_SRGB} and {@link #SPACE_LINEAR}
+     */
+    public ColorRamp(@NonNull final int[] stops, @Nullable final float[] positions, @IntRange(from = 2) final int size,
+                     @InterpolationSpace final int space) {
+        Preconditions.checkArgument(stops.length > 0, "At least one color stop is needed");
+        Preconditions.checkArgument(size >= 2, "Ramp size must be at least 2, got %s", size);
+        Preconditions.checkArgument(space == SPACE_SRGB || space == SPACE_LINEAR, "Unknown interpolation space %s", space);
+        final float[] stopPositions = positions == null ? evenPositions(stops.length) : positions;
+        Preconditions.checkArgument(stopPositions.length == stops.length, "Got %s stops, but %s positions", stops.length,
+                stopPositions.length);
+        for (int i = 0; i < stopPositions.length; i++) {
+            Preconditions.checkArgument(stopPositions[i] >= 0f && stopPositions[i] <= 1f, "Invalid stop position %s", stopPositions[i]);
+            Preconditions.checkArgument(i == 0 || stopPositions[i] >= stopPositions[i - 1], "Stop positions must not decrease");
+        }
+
+        mStops = stops.clone();
+        mEvenStops = positions == null;
+        mSpace = space;
+        mColors = new int[size];
+        fill(mColors, mStops, stopPositions, space);
+    }
+
+    /**
+     * Gets the color at the given position of the ramp.
+     *
+     * @param fraction Position in range [0, 1], values out of range are clamped
+     * @return The precomputed color closest to the given position
+     */
+    @ColorInt
+    public int getColor(@FloatRange(from = 0, to = 1) final float fraction) {
+        final int last = mColors.length - 1;
+        final int index = (int) (fraction * last + 0.5f);
+        return mColors[index < 0 ? 0 : index > last ? last : index];
+    }
+
+    /**
+     * Gets the precomputed color with the given index.
+     *
+     * @param index Index of the color, in range [0, {@link #size()})
+     * @return The color at the given index
+     */
+    @ColorInt
+    public int getColorAt(@IntRange(from = 0) final int index) {
+        return mColors[index];
+    }
+
+    /**
+     * Gets the number of precomputed colors.
+     *
+     * @return The size given in the constructor
+     */
+    public int size() {
+        return mColors.length;
+    }
+
+    /**
+     * Creates a new drawable showing this ramp as a linear gradient. Evenly distributed sRGB ramps use their stops directly, all other
+     * ramps use their precomputed colors so the drawable matches the ramp.
+     *
+     * @param orientation Which direction the gradient goes
+     * @return A new gradient drawable
+     */
+    @NonNull
+    public GradientDrawable createGradientDrawable(@NonNull final GradientDrawable.Orientation orientation) {
+        final int[] colors;
+        if (mEvenStops && mSpace == SPACE_SRGB) {
+            // gradients need at least two colors
+            colors = mStops.length > 1 ? mStops.clone() : new int[]{mStops[0], mStops[0]};
+        } else {
+            colors = mColors.clone();
+        }
+        return new GradientDrawable(orientation, colors);
+    }
+
+    /* Private helpers */
+
+    @NonNull
+    private static float[] evenPositions(final int count) {
+        final float[] positions = new float[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = count == 1 ? 0f : (float) i / (count - 1);
+        }
+        return positions;
+    }
+
+    private static void fill(@NonNull final int[] colors, @NonNull final int[] stops, @NonNull final float[] positions, final int space) {
+        final int last = colors.length - 1;
+        int stop = 0;
+        for (int i = 0; i <= last; i++) {
+            final float position = (float) i / last;
+            // positions grow, so the current segment only ever moves forward
+            while (stop < stops.length && positions[stop] <= position) {
+                stop++;
+            }
+            if (stop == 0) {
+                colors[i] = stops[0];
+            } else if (stop == stops.length) {
+                colors[i] = stops[stops.length - 1];
+            } else {
+                final float start = positions[stop - 1];
+                final float fraction = (position - start) / (positions[stop] - start);
+                colors[i] = interpolate(stops[stop - 1], stops[stop], fraction, space);
+            }
+        }
+    }
+
+    @ColorInt
+    private static int interpolate(@ColorInt final int from, @ColorInt final int to, final float fraction, final int space) {
+        final int alpha = Math.round(lerp(from >>> 24, to >>> 24, fraction));
+        int result = alpha << 24;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            final int start = (from >> shift) & 0xFF;
+            final int end = (to >> shift) & 0xFF;
+            final int component;
+            if (space == SPACE_LINEAR) {
+                component = linearToSrgb(lerp(Coloring.SRGB_TO_LINEAR[start], Coloring.SRGB_TO_LINEAR[end], fraction));
+            } else {
+                component = Math.round(lerp(start, end, fraction));
+            }
+            result |= component << shift;
+        }
+        return result;
+    }
+
+    private static float lerp(final float from, final float to, final float fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private static int linearToSrgb(final float linear) {
+        final double srgb = linear <= 0.0031308d ? linear * 12.92d : 1.055d * Math.pow(linear, 1d / 2.4d) - 0.055d;
+        return Coloring.clampRGB((int) Math.round(srgb * 255d));
+    }
+
+}
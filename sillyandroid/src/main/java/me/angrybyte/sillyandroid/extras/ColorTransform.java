@@ -0,0 +1,374 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * A chain of {@link Coloring} operations fused into a single per-color function. Create one using the {@link Builder}, then apply it to
+ * single colors, color buffers or drawables. Applying the transform gives the same result as calling the corresponding {@link Coloring}
+ * methods one after another, but without re-extracting the color components for each step where that can be avoided:
+ * <ul>
+ * <li>Consecutive alpha shifts ({@link Builder#shiftAlpha(int)}) are baked into a single alpha lookup table when the transform is built</li>
+ * <li>Consecutive alpha shifts in the same direction are merged, and steps that don't change anything are dropped</li>
+ * <li>Bulk operations remember the last transformed color, so runs of the same color are transformed only once</li>
+ * </ul>
+ * Blending, brightness and contrast steps are not affine, so only transforms made of at most one alpha shift (after merging) can also be
+ * expressed as a {@link ColorMatrix}, see {@link #hasColorMatrix()}; those can be applied to drawables using a
+ * {@link ColorMatrixColorFilter}.
+ * <p>
+ * Transforms are immutable and thread-safe.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ColorTransform {
+
+    // builder steps
+    private static final int STEP_BLEND = 1;
+    private static final int STEP_BRIGHTNESS = 2;
+    private static final int STEP_CONTRAST = 3;
+    private static final int STEP_ALPHA = 4;
+
+    // fused operations, the blend, brightness and contrast steps are used as they are
+    private static final int OP_LOOKUP = 0;
+
+    /**
+     * Builds {@link ColorTransform}s. Steps are applied in the order they were added.
+     */
+    public static final class Builder {
+
+        private final ArrayList<int[]> mSteps = new ArrayList<>();
+
+        /**
+         * Adds a {@link Coloring#alphaBlendWithWhite(int)} step.
+         *
+         * @return This builder
+         */
+        @NonNull
+        public Builder alphaBlendWithWhite() {
+            return alphaBlend(Color.WHITE);
+        }
+
+        /**
+         * Adds a {@link Coloring#alphaBlendWithBlack(int)} step.
+         *
+         * @return This builder
+         */
+        @NonNull
+        public Builder alphaBlendWithBlack() {
+            return alphaBlend(Color.BLACK);
+        }
+
+        /**
+         * Adds a {@link Coloring#alphaBlendColors(int, int)} step, the transformed color goes on top.
+         *
+         * @param bottomColor Color that goes below
+         * @return This builder
+         */
+        @NonNull
+        public Builder alphaBlend(@ColorInt final int bottomColor) {
+            mSteps.add(new int[]{STEP_BLEND, bottomColor});
+            return this;
+        }
+
+        /**
+         * Adds a {@link Coloring#shiftBrightness(int, int)} step.
+         *
+         * @param amount Negative to darken, positive to lighten. Must be in range [-255, 255]
+         * @return This builder
+         */
+        @NonNull
+        public Builder shiftBrightness(@IntRange(from = -255, to = 255) final int amount) {
+            Preconditions.checkArgument(amount >= -255 && amount <= 255, "Invalid brightness shift %s", amount);
+            mSteps.add(new int[]{STEP_BRIGHTNESS, amount});
+            return this;
+        }
+
+        /**
+         * Adds a {@link Coloring#shiftAlpha(int, int)} step.
+         *
+         * @param amount Negative to dim, positive to opacify. Must be in range [-255, 255]
+         * @return This builder
+         */
+        @NonNull
+        public Builder shiftAlpha(@IntRange(from = -255, to = 255) final int amount) {
+            Preconditions.checkArgument(amount >= -255 && amount <= 255, "Invalid alpha shift %s", amount);
+            mSteps.add(new int[]{STEP_ALPHA, amount});
+            return this;
+        }
+
+        /**
+         * Adds a {@link Coloring#contrastColor(int)} step.
+         *
+         * @return This builder
+         */
+        @NonNull
+        public Builder contrast() {
+            mSteps.add(new int[]{STEP_CONTRAST, 0});
+            return this;
+        }
+
+        /**
+         * Fuses all added steps into a transform. The builder can be used again after this.
+         *
+         * @return A new transform
+         */
+        @NonNull
+        public ColorTransform build() {
+            return new ColorTransform(simplify(mSteps));
+        }
+    }
+
+    private final int[] mOps;
+    private final int[] mParams;
+    private final int[][] mLookups;
+    @Nullable
+    private final float[] mColorMatrix;
+    @Nullable
+    private volatile ColorMatrixColorFilter mColorFilter;
+
+    /**
+     * Fuses the given (already simplified) steps into operations.
+     */
+    private ColorTransform(@NonNull final ArrayList<int[]> steps) {
+        final ArrayList<int[]> lookups = new ArrayList<>();
+        final int[] ops = new int[steps.size()];
+        final int[] params = new int[steps.size()];
+        int opCount = 0;
+        int i = 0;
+        while (i < steps.size()) {
+            int end = i;
+            while (end < steps.size() && steps.get(end)[0] == STEP_ALPHA) {
+                end++;
+            }
+            if (end > i) {
+                ops[opCount] = OP_LOOKUP;
+                params[opCount] = lookups.size();
+                lookups.add(createLookup(steps, i, end));
+                i = end;
+            } else {
+                ops[opCount] = steps.get(i)[0];
+                params[opCount] = steps.get(i)[1];
+                i++;
+            }
+            opCount++;
+        }
+
+        mOps = new int[opCount];
+        mParams = new int[opCount];
+        System.arraycopy(ops, 0, mOps, 0, opCount);
+        System.arraycopy(params, 0, mParams, 0, opCount);
+        mLookups = lookups.toArray(new int[lookups.size()][]);
+        mColorMatrix = createColorMatrix(steps);
+    }
+
+    /**
+     * Transforms a single color.
+     *
+     * @param color Which color to transform
+     * @return The transformed color
+     */
+    @ColorInt
+    public int apply(@ColorInt final int color) {
+        int result = color;
+        for (int i = 0; i < mOps.length; i++) {
+            final int param = mParams[i];
+            switch (mOps[i]) {
+                case OP_LOOKUP:
+                    result = lookup(mLookups[param], result);
+                    break;
+                case STEP_BLEND:
+                    result = Coloring.alphaBlendColors(result, param);
+                    break;
+                case STEP_BRIGHTNESS:
+                    result = Coloring.shiftBrightness(result, param);
+                    break;
+                default:
+                    result = Coloring.contrastColor(result);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Transforms a range of colors. Source and destination may be the same array. Doesn't allocate memory for each color.
+     *
+     * @param colors    Which colors to transform
+     * @param srcOffset Index of the first color to transform
+     * @param out       Where to write the results
+     * @param outOffset Index of the first result
+     * @param length    How many colors to transform
+     */
+    public void apply(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset, final int length) {
+        apply(colors, srcOffset, out, outOffset, length, null);
+    }
+
+    /**
+     * Same as {@link #apply(int[], int, int[], int, int)}, but splits the work across the given executor when there are more than
+     * {@link Coloring#PARALLEL_THRESHOLD} colors. Source and destination ranges must not partially overlap.
+     *
+     * @param colors    Which colors to transform
+     * @param srcOffset Index of the first color to transform
+     * @param out       Where to write the results
+     * @param outOffset Index of the first result
+     * @param length    How many colors to transform
+     * @param executor  Which executor to use, or {@code null} to transform everything on the calling thread
+     */
+    public void apply(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset, final int length,
+                      @Nullable final Executor executor) {
+        Preconditions.checkPositionIndexes(srcOffset, srcOffset + length, colors.length);
+        Preconditions.checkPositionIndexes(outOffset, outOffset + length, out.length);
+        ParallelChunks.run(length, Coloring.PARALLEL_THRESHOLD, executor, (from, count) ->
+                applyRange(colors, srcOffset + from, out, outOffset + from, count));
+    }
+
+    /**
+     * Checks whether this transform can be expressed as a color matrix, and therefore applied to drawables. This is true when the
+     * transform is empty or contains only alpha shifts in the same direction.
+     *
+     * @return {@code true} if {@link #getColorMatrix()} and {@link #getColorFilter()} are available, {@code false} otherwise
+     */
+    public boolean hasColorMatrix() {
+        return mColorMatrix != null;
+    }
+
+    /**
+     * Gets this transform as a 4x5 color matrix, in the format used by {@link ColorMatrix#set(float[])}. Results of the matrix may
+     * differ from {@link #apply(int)} by a rounding error.
+     *
+     * @return A new copy of the matrix values, or {@code null} if this transform can't be expressed as a matrix
+     */
+    @Nullable
+    public float[] getColorMatrix() {
+        return mColorMatrix == null ? null : mColorMatrix.clone();
+    }
+
+    /**
+     * Gets a color filter that applies this transform when drawing. The same filter instance is returned each time.
+     *
+     * @return A color filter for this transform
+     * @throws IllegalStateException If this transform can't be expressed as a color matrix, see {@link #hasColorMatrix()}
+     */
+    @NonNull
+    public ColorMatrixColorFilter getColorFilter() {
+        Preconditions.checkState(mColorMatrix != null, "This transform can't be expressed as a color matrix");
+        ColorMatrixColorFilter filter = mColorFilter;
+        if (filter == null) {
+            filter = new ColorMatrixColorFilter(mColorMatrix);
+            mColorFilter = filter;
+        }
+        return filter;
+    }
+
+    /**
+     * Applies this transform to the given drawable using a {@link ColorMatrixColorFilter}. The drawable is mutated first, so other
+     * drawables sharing its state are not affected.
+     *
+     * @param drawable Which drawable to transform
+     * @return The same (mutated) drawable
+     * @throws IllegalStateException If this transform can't be expressed as a color matrix, see {@link #hasColorMatrix()}
+     */
+    @NonNull
+    public Drawable applyTo(@NonNull final Drawable drawable) {
+        final Drawable mutated = drawable.mutate();
+        mutated.setColorFilter(getColorFilter());
+        return mutated;
+    }
+
+    /* Private helpers */
+
+    private void applyRange(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                            final int length) {
+        if (mOps.length == 1 && mOps[0] == OP_LOOKUP) {
+            final int[] table = mLookups[0];
+            for (int i = 0; i < length; i++) {
+                out[outOffset + i] = lookup(table, colors[srcOffset + i]);
+            }
+            return;
+        }
+
+        if (length == 0) {
+            return;
+        }
+        int lastColor = colors[srcOffset];
+        int lastResult = apply(lastColor);
+        for (int i = 0; i < length; i++) {
+            final int color = colors[srcOffset + i];
+            if (color != lastColor) {
+                lastColor = color;
+                lastResult = apply(color);
+            }
+            out[outOffset + i] = lastResult;
+        }
+    }
+
+    private static int lookup(@NonNull final int[] table, final int color) {
+        return table[color >>> 24] | (color & 0x00FFFFFF);
+    }
+
+    /**
+     * Merges consecutive alpha shifts in the same direction and drops the steps that don't change anything.
+     */
+    @NonNull
+    private static ArrayList<int[]> simplify(@NonNull final ArrayList<int[]> steps) {
+        final ArrayList<int[]> simplified = new ArrayList<>(steps.size());
+        for (final int[] step : steps) {
+            final int type = step[0];
+            final int param = step[1];
+            if ((type == STEP_ALPHA || type == STEP_BRIGHTNESS) && param == 0) {
+                continue;
+            }
+            final int[] previous = simplified.isEmpty() ? null : simplified.get(simplified.size() - 1);
+            if (type == STEP_ALPHA && previous != null && previous[0] == STEP_ALPHA && (previous[1] > 0) == (param > 0)) {
+                // clamping can't kick in between two shifts in the same direction, capping the sum doesn't change the result
+                previous[1] = Math.max(-255, Math.min(255, previous[1] + param));
+                continue;
+            }
+            simplified.add(new int[]{type, param});
+        }
+        return simplified;
+    }
+
+    /**
+     * Creates an alpha lookup table for the given alpha shift steps, the looked up values are already shifted into place.
+     */
+    @NonNull
+    private static int[] createLookup(@NonNull final ArrayList<int[]> steps, final int from, final int to) {
+        final int[] table = new int[256];
+        for (int value = 0; value < 256; value++) {
+            int alpha = value;
+            for (int i = from; i < to; i++) {
+                alpha = Coloring.clampRGB(alpha + steps.get(i)[1]);
+            }
+            table[value] = alpha << 24;
+        }
+        return table;
+    }
+
+    /**
+     * Creates a color matrix for the given (already simplified) steps, if there are no steps or only a single alpha shift.
+     */
+    @Nullable
+    private static float[] createColorMatrix(@NonNull final ArrayList<int[]> steps) {
+        if (steps.size() > 1 || steps.size() == 1 && steps.get(0)[0] != STEP_ALPHA) {
+            // matrices clamp only at the end, so two opposite alpha shifts can't be merged into one offset
+            return null;
+        }
+        final float alphaOffset = steps.isEmpty() ? 0f : steps.get(0)[1];
+        return new float[]{
+                1f, 0f, 0f, 0f, 0f,
+                0f, 1f, 0f, 0f, 0f,
+                0f, 0f, 1f, 0f, 0f,
+                0f, 0f, 0f, 1f, alphaOffset
+        };
+    }
+
+}
@@ -22,13 +22,19 @@ import android.graphics.drawable.VectorDrawable;
 import android.os.Build;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
+import android.support.annotation.FloatRange;
 import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.Px;
 import android.support.annotation.RequiresApi;
+import android.support.annotation.WorkerThread;
 import android.support.graphics.drawable.VectorDrawableCompat;
 import android.support.v4.graphics.ColorUtils;
 import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v4.util.LruCache;
+
+import java.util.concurrent.Executor;
 
 import me.angrybyte.sillyandroid.SillyAndroid;
 
@@ -50,6 +56,61 @@ public final class Coloring {
      * The light/dark threshold when calculating color brightness
      */
     public static final int BRIGHTNESS_THRESHOLD = 180;
+    /**
+     * Minimum number of colors a bulk operation needs to process before it gets split across the given executor
+     */
+    public static final int PARALLEL_THRESHOLD = 16 * 1024;
+    /**
+     * How many color state lists created by {@link #createContrastTextColors(int, int)} are kept for reuse
+     */
+    public static final int CONTRAST_TEXT_COLORS_CACHE_SIZE = 32;
+
+    // state specs, shared by all state lists (they're in arrays because you can use different drawables for reverse transitions..)
+    private static final int[] STATE_NORMAL = new int[]{};
+    private static final int[] STATE_CLICKED = new int[]{android.R.attr.state_pressed};
+    private static final int[] STATE_CHECKED = new int[]{android.R.attr.state_checked};
+    private static final int[] STATE_SELECTED = new int[]{android.R.attr.state_selected};
+    private static final int[] STATE_FOCUSED = new int[]{android.R.attr.state_focused};
+    private static final int[] STATE_ACTIVATED = new int[]{android.R.attr.state_activated};
+    private static final int[][] STATE_SPECS_CONTRAST_TEXT = new int[][]{
+            STATE_SELECTED, STATE_FOCUSED, STATE_CLICKED, STATE_CHECKED, STATE_ACTIVATED, STATE_NORMAL
+    };
+
+    private static final LruCache<Long, ColorStateList> sContrastTextColors = new LruCache<>(CONTRAST_TEXT_COLORS_CACHE_SIZE);
+
+    /**
+     * Minimum contrast ratio for normal text, as defined by WCAG 2.0 level AA
+     */
+    public static final float WCAG_AA_CONTRAST_RATIO = 4.5f;
+    /**
+     * Minimum contrast ratio for normal text, as defined by WCAG 2.0 level AAA
+     */
+    public static final float WCAG_AAA_CONTRAST_RATIO = 7f;
+
+    // linear light values for all 8-bit sRGB component values, see https://www.w3.org/TR/WCAG20/#relativeluminancedef
+    static final float[] SRGB_TO_LINEAR = new float[256];
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            final double component = i / 255d;
+            SRGB_TO_LINEAR[i] = (float) (component <= 0.03928d ? component / 12.92d : Math.pow((component + 0.055d) / 1.055d, 2.4d));
+        }
+    }
+
+    /**
+     * A chunk of work done by one of the bulk color operations.
+     */
+    private interface BulkOperation {
+        void apply(@NonNull int[] src, int srcOffset, @NonNull int[] dst, int dstOffset, int length);
+    }
+
+    /**
+     * Holds the shared {@link PaletteExtractor}. Its histograms take about 64KB, so they are allocated on the first
+     * {@link #extractPalette(Bitmap)} call instead of when this class is loaded.
+     */
+    private static final class PaletteHolder {
+        static final PaletteExtractor INSTANCE = new PaletteExtractor();
+    }
 
     /**
      * Hidden default constructor.
@@ -81,43 +142,79 @@ public final class Coloring {
      * <li>#RRggBb</li>
      * <li>0xRRggBb</li>
      * <li>0XRRggBb</li>
+     * <li>#aRgB (short form, each digit is doubled)</li>
+     * <li>#RgB (short form, each digit is doubled)</li>
      * </ul>
-     * <i>* Plus all caps variants.</i>
+     * <i>* Plus all caps variants, long forms without the prefix, and short forms with the '0x' prefix. Short forms without a prefix
+     * (such as "fff") are not accepted.</i>
      *
      * @param hexValue Hex value
      * @return Integer color, or {@link Color#DKGRAY} if something goes wrong
      */
     @ColorInt
     public static int decodeColor(@NonNull final String hexValue) {
-        if (SillyAndroid.isEmpty(hexValue)) {
+        return decodeColor((CharSequence) hexValue);
+    }
+
+    /**
+     * Same as {@link #decodeColor(String)}, but works on any character sequence (such as a {@link StringBuilder} or a part of a text buffer).
+     * The value is scanned in a single pass, without allocating memory.
+     *
+     * @param hexValue Hex value, {@code null} results in {@link Color#DKGRAY}
+     * @return Integer color, or {@link Color#DKGRAY} if something goes wrong
+     */
+    @ColorInt
+    public static int decodeColor(@Nullable final CharSequence hexValue) {
+        if (hexValue == null) {
             return Color.DKGRAY;
         }
 
-        String colorHex = hexValue.trim();
-        colorHex = colorHex.replace("#", "").replace("0x", "").replace("0X", "");
-        final int length = colorHex.length();
-        if (length != 6 && length != 8) {
+        // trim the whitespace around the value, same as String.trim()
+        int start = 0;
+        int end = hexValue.length();
+        while (start < end && hexValue.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && hexValue.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // skip the prefix, if any
+        final int prefixStart = start;
+        if (start < end && hexValue.charAt(start) == '#') {
+            start++;
+        } else if (end - start > 2 && hexValue.charAt(start) == '0' && (hexValue.charAt(start + 1) == 'x' || hexValue.charAt(start + 1) == 'X')) {
+            start += 2;
+        }
+
+        // short forms need a prefix, values like "fff" or "0123" are not colors
+        final int length = end - start;
+        final boolean isShortForm = length == 3 || length == 4;
+        if ((!isShortForm && length != 6 && length != 8) || (isShortForm && start == prefixStart)) {
             return Color.DKGRAY;
         }
 
-        int alpha = 255;
-        final int red;
-        final int green;
-        final int blue;
-        try {
-            if (length == 8) {
-                alpha = Integer.parseInt(colorHex.substring(0, 2), 16);
-                red = Integer.parseInt(colorHex.substring(2, 4), 16);
-                green = Integer.parseInt(colorHex.substring(4, 6), 16);
-                blue = Integer.parseInt(colorHex.substring(6, 8), 16);
-            } else {
-                red = Integer.parseInt(colorHex.substring(0, 2), 16);
-                green = Integer.parseInt(colorHex.substring(2, 4), 16);
-                blue = Integer.parseInt(colorHex.substring(4, 6), 16);
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = hexDigit(hexValue.charAt(i));
+            if (digit < 0) {
+                return Color.DKGRAY;
             }
-            return Color.argb(alpha, red, green, blue);
-        } catch (Throwable ignored) {
-            return Color.DKGRAY;
+            value = (value << 4) | digit;
+        }
+
+        switch (length) {
+            case 3:
+                value |= 0xF000;
+                // fall through, the alpha digit is now set
+            case 4:
+                // each digit doubles, e.g. 0xABCD -> 0xAABBCCDD
+                value = (value & 0xF000) << 12 | (value & 0xF00) << 8 | (value & 0xF0) << 4 | (value & 0xF);
+                return value | (value << 4);
+            case 6:
+                return 0xFF000000 | value;
+            default:
+                return value;
         }
     }
 
@@ -147,6 +244,9 @@ public final class Coloring {
 
     /**
      * Alpha blends the two given colors. Bottom color's alpha will be set to 100% prior to blending.
+     * <p>
+     * Alpha is rounded to a whole percent, and each output component is {@code top * alpha + bottom * (1 - alpha)} rounded up. Blending is
+     * done in integer math, with results identical to the previous floating-point implementation.
      *
      * @param topColor    Color that goes on top
      * @param bottomColor Color that goes below
@@ -154,24 +254,12 @@ public final class Coloring {
      */
     @ColorInt
     public static int alphaBlendColors(@ColorInt final int topColor, @ColorInt final int bottomColor) {
-        // extract top color's components
-        final double topR = (double) Color.red(topColor);
-        final double topG = (double) Color.green(topColor);
-        final double topB = (double) Color.blue(topColor);
-        final double topA = (double) Color.alpha(topColor);
-        final double alphaFraction = Math.round(topA / 255d * 100d) / 100d; // slice to 2 decimal places
-
-        // extract bottom color's components
-        final double botR = (double) Color.red(bottomColor);
-        final double botG = (double) Color.green(bottomColor);
-        final double botB = (double) Color.blue(bottomColor);
-
         // rule: outputComponent = (foregroundComponent * foregroundAlpha) + (backgroundComponent * (1 - foregroundAlpha))
-        int r = clampRGB((int) Math.ceil(topR * alphaFraction + botR * (1d - alphaFraction)));
-        int g = clampRGB((int) Math.ceil(topG * alphaFraction + botG * (1d - alphaFraction)));
-        int b = clampRGB((int) Math.ceil(topB * alphaFraction + botB * (1d - alphaFraction)));
-
-        return Color.argb(0xFF, r, g, b);
+        final int alphaPercent = toAlphaPercent(topColor >>> 24);
+        final int r = blendComponent((topColor >> 16) & 0xFF, (bottomColor >> 16) & 0xFF, alphaPercent);
+        final int g = blendComponent((topColor >> 8) & 0xFF, (bottomColor >> 8) & 0xFF, alphaPercent);
+        final int b = blendComponent(topColor & 0xFF, bottomColor & 0xFF, alphaPercent);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
     }
 
     /**
@@ -197,7 +285,8 @@ public final class Coloring {
     }
 
     /**
-     * Darkens or lightens the color by the specified amount.
+     * Darkens or lightens the color by the specified amount. This shifts the lightness of the color in the HSL color space, using the same
+     * math as {@link ColorUtils#colorToHSL(int, float[])} and {@link ColorUtils#HSLToColor(float[])}, but without allocating memory.
      *
      * @param color  Which color to change
      * @param amount Negative to darken, positive to lighten. Must be in range [-255, 255]
@@ -210,21 +299,83 @@ public final class Coloring {
         }
 
         // convert from RGB to HSL (hue/saturation/lightness)
-        final float[] hsl = new float[]{0f, 0f, 0f};
-        ColorUtils.colorToHSL(color, hsl);
+        final float red = ((color >> 16) & 0xFF) / 255f;
+        final float green = ((color >> 8) & 0xFF) / 255f;
+        final float blue = (color & 0xFF) / 255f;
+        final float max = Math.max(red, Math.max(green, blue));
+        final float min = Math.min(red, Math.min(green, blue));
+        final float delta = max - min;
+        final float originalLightness = (max + min) / 2f;
+        float hue;
+        float saturation;
+        if (max == min) {
+            hue = saturation = 0f;
+        } else {
+            if (max == red) {
+                hue = ((green - blue) / delta) % 6f;
+            } else if (max == green) {
+                hue = ((blue - red) / delta) + 2f;
+            } else {
+                hue = ((red - green) / delta) + 4f;
+            }
+            saturation = delta / (1f - Math.abs(2f * originalLightness - 1f));
+        }
+        hue = (hue * 60f) % 360f;
+        if (hue < 0f) {
+            hue += 360f;
+        }
+        if (hue > 360f) {
+            hue = 360f;
+        }
+        saturation = clampFraction(saturation);
 
         // clamp the lightness to [0..1] range (0% - 100%)
-        float lightness = hsl[2] + amount / 255f;
-        if (lightness < 0f) {
-            lightness = 0f;
-        } else if (lightness > 1f) {
-            lightness = 1f;
+        final float lightness = clampFraction(clampFraction(originalLightness) + amount / 255f);
+
+        // convert back from HSL to RGB
+        final float chroma = (1f - Math.abs(2 * lightness - 1f)) * saturation;
+        final float m = lightness - 0.5f * chroma;
+        final float x = chroma * (1f - Math.abs((hue / 60f % 2f) - 1f));
+        final int r;
+        final int g;
+        final int b;
+        switch ((int) hue / 60) {
+            case 0:
+                r = Math.round(255 * (chroma + m));
+                g = Math.round(255 * (x + m));
+                b = Math.round(255 * m);
+                break;
+            case 1:
+                r = Math.round(255 * (x + m));
+                g = Math.round(255 * (chroma + m));
+                b = Math.round(255 * m);
+                break;
+            case 2:
+                r = Math.round(255 * m);
+                g = Math.round(255 * (chroma + m));
+                b = Math.round(255 * (x + m));
+                break;
+            case 3:
+                r = Math.round(255 * m);
+                g = Math.round(255 * (x + m));
+                b = Math.round(255 * (chroma + m));
+                break;
+            case 4:
+                r = Math.round(255 * (x + m));
+                g = Math.round(255 * m);
+                b = Math.round(255 * (chroma + m));
+                break;
+            case 5:
+            case 6:
+                r = Math.round(255 * (chroma + m));
+                g = Math.round(255 * m);
+                b = Math.round(255 * (x + m));
+                break;
+            default:
+                r = g = b = 0;
+                break;
         }
-        hsl[2] = lightness;
-
-        final int a = Color.alpha(color);
-        final int result = ColorUtils.HSLToColor(hsl);
-        return ColorUtils.setAlphaComponent(result, a);
+        return (color & 0xFF000000) | (clampRGB(r) << 16) | (clampRGB(g) << 8) | clampRGB(b);
     }
 
     /**
@@ -286,6 +437,247 @@ public final class Coloring {
         }
     }
 
+    /**
+     * Calculates the relative luminance of the given color, as defined by WCAG 2.0. Alpha is ignored.
+     * Uses a precomputed sRGB-to-linear table, so this is only three table lookups and a few multiplications.
+     *
+     * @param color Which color to check
+     * @return Relative luminance, from {@code 0} (black) to {@code 1} (white)
+     */
+    @FloatRange(from = 0, to = 1)
+    public static float luminance(@ColorInt final int color) {
+        return 0.2126f * SRGB_TO_LINEAR[(color >> 16) & 0xFF] + 0.7152f * SRGB_TO_LINEAR[(color >> 8) & 0xFF]
+                + 0.0722f * SRGB_TO_LINEAR[color & 0xFF];
+    }
+
+    /**
+     * Calculates the contrast ratio between the two colors, as defined by WCAG 2.0. The background color is treated as opaque; a translucent
+     * foreground color is blended with the background first.
+     *
+     * @param foreground Color on top, i.e. the text color
+     * @param background Color below, i.e. the background color
+     * @return The contrast ratio, from {@code 1} (no contrast) to {@code 21} (black on white)
+     * @see #WCAG_AA_CONTRAST_RATIO
+     * @see #WCAG_AAA_CONTRAST_RATIO
+     */
+    @FloatRange(from = 1, to = 21)
+    public static float contrastRatio(@ColorInt final int foreground, @ColorInt final int background) {
+        final int top = (foreground >>> 24) == 0xFF ? foreground : alphaBlendColors(foreground, background);
+        final float topLuminance = luminance(top) + 0.05f;
+        final float bottomLuminance = luminance(background) + 0.05f;
+        return topLuminance > bottomLuminance ? topLuminance / bottomLuminance : bottomLuminance / topLuminance;
+    }
+
+    /**
+     * Picks the foreground color that has the best contrast ratio (see {@link #contrastRatio(int, int)}) with the given background.
+     *
+     * @param background Color below, i.e. the background color
+     * @param candidates Which colors to pick from, at least one is needed. The first one wins when contrast ratios are equal
+     * @return The candidate with the best contrast
+     */
+    @ColorInt
+    public static int bestForeground(@ColorInt final int background, @NonNull final int... candidates) {
+        Preconditions.checkArgument(candidates.length > 0, "At least one candidate color is needed");
+        int best = candidates[0];
+        float bestRatio = contrastRatio(best, background);
+        for (int i = 1; i < candidates.length; i++) {
+            final float ratio = contrastRatio(candidates[i], background);
+            if (ratio > bestRatio) {
+                best = candidates[i];
+                bestRatio = ratio;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Same as {@link #contrastColor(int)}, but uses WCAG 2.0 relative luminance to decide between white and black, picking the one with
+     * the better contrast ratio. This is more accurate for accessibility purposes.
+     *
+     * @param color Which color to use for brightness check
+     * @return Either white or black, whichever has the better contrast with the given color
+     */
+    @ColorInt
+    public static int contrastColorWcag(@ColorInt final int color) {
+        // (1 + 0.05) / (L + 0.05) > (L + 0.05) / (0 + 0.05) solves to L < ~0.179
+        return luminance(color) < 0.17912878f ? Color.WHITE : Color.BLACK;
+    }
+
+    /**
+     * Extracts the dominant, vibrant and muted colors from the given bitmap using a shared {@link PaletteExtractor}. At most
+     * {@link PaletteExtractor#DEFAULT_MAX_PIXELS} pixels are sampled, and the results are cached until the bitmap's pixels change, so this
+     * is cheap enough to call when binding list items. Use {@link #contrastColor(int)} or {@link #createContrastTextColors(int, int)} on
+     * the resulting colors to get readable text colors.
+     *
+     * @param bitmap Which bitmap to analyze, must not be recycled
+     * @return The extracted palette
+     */
+    @NonNull
+    @WorkerThread
+    public static PaletteExtractor.Palette extractPalette(@NonNull final Bitmap bitmap) {
+        return PaletteHolder.INSTANCE.extract(bitmap);
+    }
+
+    /**
+     * Bulk version of {@link #alphaBlendColors(int, int)}, blends a range of colors with the same bottom color.
+     *
+     * @param topColors   Colors that go on top
+     * @param srcOffset   Index of the first color to blend in {@code topColors}
+     * @param out         Where to write the blended colors, may be the same array as {@code topColors}
+     * @param outOffset   Index of the first blended color in {@code out}
+     * @param length      How many colors to blend
+     * @param bottomColor Color that goes below
+     */
+    public static void alphaBlendColors(@NonNull final int[] topColors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                        final int length, @ColorInt final int bottomColor) {
+        alphaBlendColors(topColors, srcOffset, out, outOffset, length, bottomColor, null);
+    }
+
+    /**
+     * Same as {@link #alphaBlendColors(int[], int, int[], int, int, int)}, but splits large ranges (over {@link #PARALLEL_THRESHOLD})
+     * into chunks processed by the given executor. The calling thread processes one of the chunks, and waits for the rest to complete, so
+     * this must not be called from a task running on the same executor: if all of its threads end up waiting, nothing runs the chunks.
+     *
+     * @param topColors   Colors that go on top
+     * @param srcOffset   Index of the first color to blend in {@code topColors}
+     * @param out         Where to write the blended colors, may be the same array as {@code topColors}
+     * @param outOffset   Index of the first blended color in {@code out}
+     * @param length      How many colors to blend
+     * @param bottomColor Color that goes below
+     * @param executor    Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     */
+    public static void alphaBlendColors(@NonNull final int[] topColors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                        final int length, @ColorInt final int bottomColor, @Nullable final Executor executor) {
+        runBulk(topColors, srcOffset, out, outOffset, length, executor, (src, from, dst, to, count) -> {
+            final int bottomR = (bottomColor >> 16) & 0xFF;
+            final int bottomG = (bottomColor >> 8) & 0xFF;
+            final int bottomB = bottomColor & 0xFF;
+            for (int i = 0; i < count; i++) {
+                final int top = src[from + i];
+                final int alphaPercent = toAlphaPercent(top >>> 24);
+                final int r = blendComponent((top >> 16) & 0xFF, bottomR, alphaPercent);
+                final int g = blendComponent((top >> 8) & 0xFF, bottomG, alphaPercent);
+                final int b = blendComponent(top & 0xFF, bottomB, alphaPercent);
+                dst[to + i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        });
+    }
+
+    /**
+     * Bulk version of {@link #shiftBrightness(int, int)}, shifts the brightness of a range of colors by the same amount.
+     * Doesn't allocate memory for each color.
+     *
+     * @param colors    Which colors to change
+     * @param srcOffset Index of the first color to change in {@code colors}
+     * @param out       Where to write the shifted colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first shifted color in {@code out}
+     * @param length    How many colors to change
+     * @param amount    Negative to darken, positive to lighten. Must be in range [-255, 255]
+     */
+    public static void shiftBrightness(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                       final int length, @IntRange(from = -255, to = 255) final int amount) {
+        shiftBrightness(colors, srcOffset, out, outOffset, length, amount, null);
+    }
+
+    /**
+     * Same as {@link #shiftBrightness(int[], int, int[], int, int, int)}, but splits large ranges (over {@link #PARALLEL_THRESHOLD})
+     * into chunks processed by the given executor. The calling thread processes one of the chunks, and waits for the rest to complete, so
+     * this must not be called from a task running on the same executor: if all of its threads end up waiting, nothing runs the chunks.
+     *
+     * @param colors    Which colors to change
+     * @param srcOffset Index of the first color to change in {@code colors}
+     * @param out       Where to write the shifted colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first shifted color in {@code out}
+     * @param length    How many colors to change
+     * @param amount    Negative to darken, positive to lighten. Must be in range [-255, 255]
+     * @param executor  Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     */
+    public static void shiftBrightness(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                       final int length, @IntRange(from = -255, to = 255) final int amount, @Nullable final Executor executor) {
+        runBulk(colors, srcOffset, out, outOffset, length, executor, (src, from, dst, to, count) -> {
+            for (int i = 0; i < count; i++) {
+                dst[to + i] = shiftBrightness(src[from + i], amount);
+            }
+        });
+    }
+
+    /**
+     * Bulk version of {@link #shiftAlpha(int, int)}, shifts the alpha component of a range of colors by the same amount.
+     *
+     * @param colors    Which colors to alpha-shift
+     * @param srcOffset Index of the first color to alpha-shift in {@code colors}
+     * @param out       Where to write the shifted colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first shifted color in {@code out}
+     * @param length    How many colors to alpha-shift
+     * @param amount    Negative to dim, positive to opacify. Must be in range [-255, 255]
+     */
+    public static void shiftAlpha(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                  final int length, @IntRange(from = -255, to = 255) final int amount) {
+        shiftAlpha(colors, srcOffset, out, outOffset, length, amount, null);
+    }
+
+    /**
+     * Same as {@link #shiftAlpha(int[], int, int[], int, int, int)}, but splits large ranges (over {@link #PARALLEL_THRESHOLD})
+     * into chunks processed by the given executor. The calling thread processes one of the chunks, and waits for the rest to complete, so
+     * this must not be called from a task running on the same executor: if all of its threads end up waiting, nothing runs the chunks.
+     *
+     * @param colors    Which colors to alpha-shift
+     * @param srcOffset Index of the first color to alpha-shift in {@code colors}
+     * @param out       Where to write the shifted colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first shifted color in {@code out}
+     * @param length    How many colors to alpha-shift
+     * @param amount    Negative to dim, positive to opacify. Must be in range [-255, 255]
+     * @param executor  Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     */
+    public static void shiftAlpha(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                  final int length, @IntRange(from = -255, to = 255) final int amount, @Nullable final Executor executor) {
+        runBulk(colors, srcOffset, out, outOffset, length, executor, (src, from, dst, to, count) -> {
+            for (int i = 0; i < count; i++) {
+                final int color = src[from + i];
+                dst[to + i] = (clampRGB((color >>> 24) + amount) << 24) | (color & 0x00FFFFFF);
+            }
+        });
+    }
+
+    /**
+     * Bulk version of {@link #contrastColor(int)}, calculates the contrasted color for each color in the range.
+     *
+     * @param colors    Which colors to use for brightness check
+     * @param srcOffset Index of the first color to check in {@code colors}
+     * @param out       Where to write the contrast colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first contrast color in {@code out}
+     * @param length    How many colors to check
+     */
+    public static void contrastColors(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                      final int length) {
+        contrastColors(colors, srcOffset, out, outOffset, length, null);
+    }
+
+    /**
+     * Same as {@link #contrastColors(int[], int, int[], int, int)}, but splits large ranges (over {@link #PARALLEL_THRESHOLD})
+     * into chunks processed by the given executor. The calling thread processes one of the chunks, and waits for the rest to complete, so
+     * this must not be called from a task running on the same executor: if all of its threads end up waiting, nothing runs the chunks.
+     *
+     * @param colors    Which colors to use for brightness check
+     * @param srcOffset Index of the first color to check in {@code colors}
+     * @param out       Where to write the contrast colors, may be the same array as {@code colors}
+     * @param outOffset Index of the first contrast color in {@code out}
+     * @param length    How many colors to check
+     * @param executor  Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     */
+    public static void contrastColors(@NonNull final int[] colors, final int srcOffset, @NonNull final int[] out, final int outOffset,
+                                      final int length, @Nullable final Executor executor) {
+        runBulk(colors, srcOffset, out, outOffset, length, executor, (src, from, dst, to, count) -> {
+            for (int i = 0; i < count; i++) {
+                final int color = src[from + i];
+                final int r = (color >> 16) & 0xFF;
+                final int g = (color >> 8) & 0xFF;
+                final int b = color & 0xFF;
+                dst[to + i] = (b + r + r + g + g + g) / 6 < BRIGHTNESS_THRESHOLD ? Color.WHITE : Color.BLACK;
+            }
+        });
+    }
+
     /**
      * Colors the given bitmap to the specified color. Uses {@link PorterDuff.Mode#SRC_ATOP}.
      *
@@ -295,19 +687,139 @@ public final class Coloring {
      */
     @NonNull
     public static Bitmap colorBitmap(@NonNull final Bitmap bitmap, @ColorInt final int color) {
-        // use the original bitmap config
-        final Bitmap result = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        return colorBitmap(bitmap, color, null);
+    }
 
-        // paint over the new canvas
+    /**
+     * Colors the given bitmap to the specified color. Uses {@link PorterDuff.Mode#SRC_ATOP}. The resulting bitmap is taken from the given
+     * pool, so you can return it back to the pool using {@link BitmapPool#release(Bitmap)} once you don't need it anymore.
+     * The result has the same config as the original bitmap, except for hardware bitmaps and bitmaps without a known config, which give an
+     * {@link Bitmap.Config#ARGB_8888} result.
+     *
+     * @param bitmap The original bitmap, must not be {@code null}
+     * @param color  Which color to use for coloring
+     * @param pool   Which pool to take the result bitmap from, or {@code null} to create a new bitmap
+     * @return A colored Bitmap, never {@code null}
+     */
+    @NonNull
+    public static Bitmap colorBitmap(@NonNull final Bitmap bitmap, @ColorInt final int color, @Nullable final BitmapPool pool) {
+        // use the original bitmap config when possible
+        final Bitmap.Config config = isHardware(bitmap) || bitmap.getConfig() == null ? Bitmap.Config.ARGB_8888 : bitmap.getConfig();
+        return colorBitmap(bitmap, color, config, pool);
+    }
+
+    /**
+     * Colors the given bitmap to the specified color, creating the result with the given config. Uses {@link PorterDuff.Mode#SRC_ATOP}.
+     * <ul>
+     * <li>{@link Bitmap.Config#ARGB_8888} and {@link Bitmap.Config#ARGB_4444} keep the transparency</li>
+     * <li>{@link Bitmap.Config#RGB_565} takes half of the memory, but transparent pixels become black, so it's only good for opaque
+     * images</li>
+     * <li>{@link Bitmap.Config#ALPHA_8} keeps only the transparency (a mask), so the color is not applied; draw the mask with a paint of
+     * the desired color, or use {@link #colorMaskDrawable(Context, Bitmap, int)} instead. Takes a quarter of the memory, good for
+     * monochrome icons</li>
+     * <li>{@link Bitmap.Config#HARDWARE} (API 26 and later) keeps the result in graphics memory only, which is faster to draw and
+     * doesn't use the app heap, but such bitmaps are immutable. Hardware results are never taken from the pool, and if the hardware
+     * bitmap can't be allocated the result stays in {@link Bitmap.Config#ARGB_8888}</li>
+     * </ul>
+     * Hardware source bitmaps are supported too, they're copied to a software bitmap first.
+     *
+     * @param bitmap The original bitmap, must not be {@code null}
+     * @param color  Which color to use for coloring
+     * @param config Which config to use for the resulting bitmap
+     * @param pool   Which pool to take the result bitmap from, or {@code null} to create a new bitmap
+     * @return A colored Bitmap, never {@code null}
+     */
+    @NonNull
+    public static Bitmap colorBitmap(@NonNull final Bitmap bitmap, @ColorInt final int color, @NonNull final Bitmap.Config config,
+                                     @Nullable final BitmapPool pool) {
+        final boolean toHardware = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE;
+        final Bitmap.Config drawingConfig = toHardware ? Bitmap.Config.ARGB_8888 : config;
+        // software canvases can't draw hardware bitmaps
+        final Bitmap source = isHardware(bitmap) ? bitmap.copy(Bitmap.Config.ARGB_8888, false) : bitmap;
+
+        final Bitmap result;
+        if (pool == null || toHardware) {
+            result = Bitmap.createBitmap(source.getWidth(), source.getHeight(), drawingConfig);
+        } else {
+            result = pool.acquire(source.getWidth(), source.getHeight(), drawingConfig);
+        }
+
+        // paint over the new canvas, masks only need the alpha channel
         final Paint paint = new Paint();
         final Canvas c = new Canvas(result);
-        paint.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_ATOP));
-        c.drawBitmap(bitmap, 0, 0, paint);
+        if (drawingConfig != Bitmap.Config.ALPHA_8) {
+            paint.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_ATOP));
+        }
+        c.drawBitmap(source, 0, 0, paint);
+        if (source != bitmap) {
+            source.recycle();
+        }
 
+        if (toHardware && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            final Bitmap hardware = result.copy(Bitmap.Config.HARDWARE, false);
+            if (hardware != null) {
+                result.recycle();
+                return hardware;
+            }
+            // hardware bitmaps may fail to allocate, keep the software one in that case
+        }
         result.prepareToDraw();
         return result;
     }
 
+    /**
+     * Colors the given bitmap to the specified color using an {@link Bitmap.Config#ALPHA_8} mask. The mask keeps only the transparency of
+     * the original bitmap, and the color is applied when drawing. This takes a quarter of the memory of a colored
+     * {@link Bitmap.Config#ARGB_8888} bitmap, and gives the same result for monochrome icons. Translucent colors are applied as the drawing
+     * alpha.
+     *
+     * @param context Which context to use
+     * @param bitmap  The original bitmap, only its transparency is used
+     * @param color   Which color to use for coloring
+     * @return A new drawable drawing the mask in the given color
+     */
+    @NonNull
+    public static BitmapDrawable colorMaskDrawable(@NonNull final Context context, @NonNull final Bitmap bitmap, @ColorInt final int color) {
+        final BitmapDrawable drawable = new BitmapDrawable(context.getResources(), colorBitmap(bitmap, color, Bitmap.Config.ALPHA_8, null));
+        // alpha-only bitmaps are drawn using the paint color
+        drawable.getPaint().setColor(color);
+        return drawable;
+    }
+
+    /**
+     * Colors the given bitmap to the specified color, without creating a new bitmap. Uses {@link PorterDuff.Mode#SRC_ATOP}, the result is
+     * the same as with {@link #colorBitmap(Bitmap, int)}, but the peak memory usage is halved. The pixels are processed one row at a time,
+     * so the only extra memory used is a single row buffer. Transparent pixels are not changed.
+     *
+     * @param bitmap The bitmap to color, must be mutable
+     * @param color  Which color to use for coloring
+     * @return The same bitmap instance, now colored
+     * @throws IllegalArgumentException If the given bitmap is not mutable
+     */
+    @NonNull
+    public static Bitmap colorBitmapInPlace(@NonNull final Bitmap bitmap, @ColorInt final int color) {
+        Preconditions.checkArgument(bitmap.isMutable(), "Bitmap must be mutable to be colored in place");
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int[] row = new int[width];
+        final boolean isOpaqueColor = color >>> 24 == 0xFF;
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                final int pixel = row[x];
+                if (pixel >>> 24 == 0) {
+                    continue;
+                }
+                // SRC_ATOP keeps the pixel's alpha and blends the color over the pixel's color
+                final int rgb = isOpaqueColor ? color : alphaBlendColors(color, pixel);
+                row[x] = (pixel & 0xFF000000) | (rgb & 0x00FFFFFF);
+            }
+            bitmap.setPixels(row, 0, width, 0, y, width, 1);
+        }
+        bitmap.prepareToDraw();
+        return bitmap;
+    }
+
     /**
      * Creates a new drawable (implementation of the Drawable object may vary depending on the OS version).
      * The result Drawable will be colored with the given color, and clipped to match the given bounds.
@@ -457,29 +969,98 @@ public final class Coloring {
      */
     @NonNull
     public static BitmapDrawable colorBitmapDrawable(@NonNull final Context context, @DrawableRes final int drawableId, @ColorInt final int color) {
-        final BitmapFactory.Options opts = new BitmapFactory.Options();
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
-            // noinspection deprecation
-            opts.inDither = false; // disable dithering for pre-Nougat devices
-        }
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
-            // noinspection deprecation
-            opts.inPurgeable = true; // allocate pixels that could be freed by the system, only for pre-Lollipop devices
-            // noinspection deprecation
-            opts.inInputShareable = true; // share an input resource stream to preserve memory, only for pre-Lollipop devices
-        }
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
-            // noinspection deprecation
-            opts.inPreferQualityOverSpeed = false; // load quickly on Gingerbread MR1 and later, ignored as of Nougat
-        }
-        opts.inTempStorage = new byte[32 * 1024]; // temp storage - advice is to use 16K, but..
+        final BitmapFactory.Options opts = createDecodeOptions();
 
         // load the resource and recolor it
-        final Bitmap resourceBitmap = BitmapFactory.decodeResource(context.getResources(), drawableId, opts);
+        final Bitmap resourceBitmap;
+        try {
+            resourceBitmap = BitmapFactory.decodeResource(context.getResources(), drawableId, opts);
+        } finally {
+            DecodeBuffers.release(opts.inTempStorage);
+        }
+        final Bitmap coloredBitmap = colorBitmap(resourceBitmap, color);
+        return new BitmapDrawable(context.getResources(), coloredBitmap);
+    }
+
+    /**
+     * Same as {@link #colorBitmapDrawable(Context, int, int)}, but decodes a downsampled bitmap when the resource is much larger than
+     * needed. Resource bounds are decoded first, and then the bitmap is decoded using the largest power-of-two sample size that keeps both
+     * sides of the bitmap at or above the requested size (see {@link #calculateInSampleSize(int, int, int, int)}). This way both memory
+     * and decode time depend on the display size instead of the resource size.
+     *
+     * @param context      Which context to use
+     * @param drawableId   Which drawable resource to load, must be a bitmap drawable
+     * @param color        Which color to use
+     * @param targetWidth  Width at which the drawable will be displayed
+     * @param targetHeight Height at which the drawable will be displayed
+     * @param allowRgb565  Whether to decode opaque resources (JPEGs) using {@link Bitmap.Config#RGB_565}, which halves the memory usage
+     * @return A colored {@link BitmapDrawable} ready for use
+     */
+    @NonNull
+    public static BitmapDrawable colorBitmapDrawable(@NonNull final Context context, @DrawableRes final int drawableId, @ColorInt final int color,
+                                                     @Px final int targetWidth, @Px final int targetHeight, final boolean allowRgb565) {
+        final BitmapFactory.Options opts = createDecodeOptions();
+        final Bitmap resourceBitmap;
+        try {
+            // decode bounds only, to see how much we can skip
+            opts.inJustDecodeBounds = true;
+            BitmapFactory.decodeResource(context.getResources(), drawableId, opts);
+            opts.inJustDecodeBounds = false;
+            opts.inSampleSize = calculateInSampleSize(opts.outWidth, opts.outHeight, targetWidth, targetHeight);
+            if (allowRgb565 && "image/jpeg".equals(opts.outMimeType)) {
+                opts.inPreferredConfig = Bitmap.Config.RGB_565;
+            }
+
+            // load the resource and recolor it
+            resourceBitmap = BitmapFactory.decodeResource(context.getResources(), drawableId, opts);
+        } finally {
+            DecodeBuffers.release(opts.inTempStorage);
+        }
         final Bitmap coloredBitmap = colorBitmap(resourceBitmap, color);
         return new BitmapDrawable(context.getResources(), coloredBitmap);
     }
 
+    /**
+     * Counts how many temporary decode buffers were allocated by the bitmap decoding methods in this class. Decode buffers are pooled, so
+     * this should stay low (about one per thread decoding at the same time) no matter how many bitmaps are decoded.
+     *
+     * @return Number of decode buffer allocations since the app started
+     */
+    public static long getDecodeBufferAllocations() {
+        return DecodeBuffers.getAllocations();
+    }
+
+    /**
+     * Counts how many times the bitmap decoding methods in this class reused a pooled temporary decode buffer instead of allocating one.
+     *
+     * @return Number of decode buffer reuses since the app started
+     */
+    public static long getDecodeBufferReuses() {
+        return DecodeBuffers.getReuses();
+    }
+
+    /**
+     * Calculates the sample size for decoding a bitmap of the given size so that it's not much larger than the target size. The result is
+     * the largest power of two that keeps both sides of the decoded bitmap at or above the target size.
+     *
+     * @param width        Width of the full-size bitmap
+     * @param height       Height of the full-size bitmap
+     * @param targetWidth  Minimum width of the decoded bitmap
+     * @param targetHeight Minimum height of the decoded bitmap
+     * @return The sample size to use in {@link BitmapFactory.Options#inSampleSize}, at least {@code 1}
+     */
+    @IntRange(from = 1)
+    public static int calculateInSampleSize(final int width, final int height, @Px final int targetWidth, @Px final int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
     /**
      * Sets a {@link PorterDuff.Mode#SRC_ATOP} color filter to the given vector drawable using the specified color.
      *
@@ -525,14 +1106,6 @@ public final class Coloring {
     @NonNull
     public static StateListDrawable createStateList(@NonNull final Context context, @ColorInt final int normal, @ColorInt final int clicked,
                                                     @ColorInt final int checked, final boolean shouldFade, @IntRange(from = 0) int cornerRadius) {
-        // initialize state arrays (they're in arrays because you can use different drawables for reverse transitions..)
-        final int[] normalState = new int[]{};
-        final int[] clickedState = new int[]{android.R.attr.state_pressed};
-        final int[] checkedState = new int[]{android.R.attr.state_checked};
-        final int[] selectedState = new int[]{android.R.attr.state_selected};
-        final int[] focusedState = new int[]{android.R.attr.state_focused};
-        int[] activatedState = new int[]{android.R.attr.state_activated};
-
         // normal state drawable
         final Drawable normalDrawable = createColoredDrawable(normal, new Rect(0, 0, DEFAULT_BOUNDS, DEFAULT_BOUNDS));
         if (normalDrawable instanceof GradientDrawable) {
@@ -559,17 +1132,17 @@ public final class Coloring {
 
         if (!shouldFade) {
             // no fading, add all applicable states
-            states.addState(clickedState, clickedDrawable); // !
-            states.addState(selectedState, focusedDrawable); // reuse the focused drawable
-            states.addState(focusedState, focusedDrawable);
-            states.addState(checkedState, checkedDrawable);
-            states.addState(activatedState, focusedDrawable);
-            states.addState(normalState, normalDrawable); // !
+            states.addState(STATE_CLICKED, clickedDrawable); // !
+            states.addState(STATE_SELECTED, focusedDrawable); // reuse the focused drawable
+            states.addState(STATE_FOCUSED, focusedDrawable);
+            states.addState(STATE_CHECKED, checkedDrawable);
+            states.addState(STATE_ACTIVATED, focusedDrawable);
+            states.addState(STATE_NORMAL, normalDrawable); // !
             return states;
         } else {
             // fade enabled, add only normal and pressed states (Honeycomb bug..)
-            states.addState(clickedState, clickedDrawable); // !
-            states.addState(normalState, normalDrawable); // !
+            states.addState(STATE_CLICKED, clickedDrawable); // !
+            states.addState(STATE_NORMAL, normalDrawable); // !
             // fading only works on Honeycomb and later..
             states.setEnterFadeDuration(0);
             states.setExitFadeDuration(DEFAULT_FADE_DURATION);
@@ -678,27 +1251,21 @@ public final class Coloring {
      *
      * @param normalColor      Color normal/idle text state to this color
      * @param pressedBackColor Background color of the View that shows up when the View is pressed
-     * @return The color state list that takes care of contrasted colors
+     * @return The color state list that takes care of contrasted colors. Color state lists are immutable, so the same instance is returned
+     * for the same colors (the last {@link #CONTRAST_TEXT_COLORS_CACHE_SIZE} used color combinations are kept)
      */
     @NonNull
     public static ColorStateList createContrastTextColors(@ColorInt final int normalColor, @ColorInt final int pressedBackColor) {
-        // initialize state arrays (they're in arrays because you can use different colors for reverse transitions..)
-        final int[] normalState = new int[]{};
-        final int[] clickedState = new int[]{android.R.attr.state_pressed};
-        final int[] checkedState = new int[]{android.R.attr.state_checked};
-        final int[] selectedState = new int[]{android.R.attr.state_selected};
-        final int[] focusedState = new int[]{android.R.attr.state_focused};
-        int[] activatedState = new int[]{android.R.attr.state_activated};
-
-        // initialize identifiers
-        int[] stateColors;
-        int[][] stateIdentifiers;
-        int contrastColor = contrastColor(pressedBackColor);
-
-        stateIdentifiers = new int[][]{selectedState, focusedState, clickedState, checkedState, activatedState, normalState};
-        stateColors = new int[]{contrastColor, contrastColor, contrastColor, contrastColor, contrastColor, normalColor};
-
-        return new ColorStateList(stateIdentifiers, stateColors);
+        // the contrast color is either black or white, so that's all we need for the key
+        final int contrastColor = contrastColor(pressedBackColor);
+        final long key = ((normalColor & 0xFFFFFFFFL) << 1) | (contrastColor == Color.WHITE ? 1 : 0);
+        ColorStateList colors = sContrastTextColors.get(key);
+        if (colors == null) {
+            final int[] stateColors = new int[]{contrastColor, contrastColor, contrastColor, contrastColor, contrastColor, normalColor};
+            colors = new ColorStateList(STATE_SPECS_CONTRAST_TEXT, stateColors);
+            sContrastTextColors.put(key, colors);
+        }
+        return colors;
     }
 
     /**
@@ -727,14 +1294,6 @@ public final class Coloring {
             originalState = originalState.getCurrent();
         }
 
-        // initialize state arrays (they're in arrays because you can use different colors for reverse transitions..)
-        final int[] normalState = new int[]{};
-        final int[] clickedState = new int[]{android.R.attr.state_pressed};
-        final int[] checkedState = new int[]{android.R.attr.state_checked};
-        final int[] selectedState = new int[]{android.R.attr.state_selected};
-        final int[] focusedState = new int[]{android.R.attr.state_focused};
-        int[] activatedState = new int[]{android.R.attr.state_activated};
-
         final Drawable normalDrawable = colorDrawable(context, originalState, normalColor);
         final Drawable clickedDrawable = colorDrawable(context, originalState, contrastColor(pressedBackColor));
         final Drawable checkedDrawable = colorDrawable(context, originalState, contrastColor(pressedBackColor));
@@ -745,17 +1304,17 @@ public final class Coloring {
 
         if (!shouldFade) {
             // no fading, add all applicable states
-            states.addState(clickedState, clickedDrawable); // !
-            states.addState(selectedState, focusedDrawable); // reuse the focused drawable
-            states.addState(focusedState, focusedDrawable);
-            states.addState(checkedState, checkedDrawable);
-            states.addState(activatedState, focusedDrawable);
-            states.addState(normalState, normalDrawable); // !
+            states.addState(STATE_CLICKED, clickedDrawable); // !
+            states.addState(STATE_SELECTED, focusedDrawable); // reuse the focused drawable
+            states.addState(STATE_FOCUSED, focusedDrawable);
+            states.addState(STATE_CHECKED, checkedDrawable);
+            states.addState(STATE_ACTIVATED, focusedDrawable);
+            states.addState(STATE_NORMAL, normalDrawable); // !
             return states;
         } else {
             // fade enabled, add only normal and pressed states (Honeycomb bug..)
-            states.addState(clickedState, clickedDrawable); // !
-            states.addState(normalState, normalDrawable); // !
+            states.addState(STATE_CLICKED, clickedDrawable); // !
+            states.addState(STATE_NORMAL, normalDrawable); // !
             // fading only works on Honeycomb and later..
             states.setEnterFadeDuration(0);
             states.setExitFadeDuration(DEFAULT_FADE_DURATION);
@@ -789,30 +1348,22 @@ public final class Coloring {
             checkedState = checkedState.getCurrent();
         }
 
-        // initialize state arrays (they're in arrays because you can use different colors for reverse transitions..)
-        final int[] normalStates = new int[]{};
-        final int[] clickedStates = new int[]{android.R.attr.state_pressed};
-        final int[] checkedStates = new int[]{android.R.attr.state_checked};
-        final int[] selectedStates = new int[]{android.R.attr.state_selected};
-        final int[] focusedStates = new int[]{android.R.attr.state_focused};
-        int[] activatedState = new int[]{android.R.attr.state_activated};
-
         // prepare the state list (order of the states is extremely important!)
         final StateListDrawable states = new StateListDrawable();
 
         if (!shouldFade) {
             // no fading, add all applicable states
-            states.addState(clickedStates, clickedState); // !
-            states.addState(selectedStates, checkedState);
-            states.addState(focusedStates, normalState);
-            states.addState(checkedStates, checkedState);
-            states.addState(activatedState, checkedState);
-            states.addState(normalStates, normalState); // !
+            states.addState(STATE_CLICKED, clickedState); // !
+            states.addState(STATE_SELECTED, checkedState);
+            states.addState(STATE_FOCUSED, normalState);
+            states.addState(STATE_CHECKED, checkedState);
+            states.addState(STATE_ACTIVATED, checkedState);
+            states.addState(STATE_NORMAL, normalState); // !
             return states;
         } else {
             // fade enabled, add only normal and pressed states (Honeycomb bug..)
-            states.addState(clickedStates, clickedState); // !
-            states.addState(normalStates, normalState); // !
+            states.addState(STATE_CLICKED, clickedState); // !
+            states.addState(STATE_NORMAL, normalState); // !
             // fading only works on Honeycomb and later..
             states.setEnterFadeDuration(0);
             states.setExitFadeDuration(DEFAULT_FADE_DURATION);
@@ -820,4 +1371,101 @@ public final class Coloring {
         }
     }
 
+    /* Private helpers */
+
+    /**
+     * Creates the bitmap decoding options used to load resource bitmaps, optimized for each platform version.
+     */
+    @NonNull
+    private static BitmapFactory.Options createDecodeOptions() {
+        final BitmapFactory.Options opts = new BitmapFactory.Options();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            // noinspection deprecation
+            opts.inDither = false; // disable dithering for pre-Nougat devices
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            // noinspection deprecation
+            opts.inPurgeable = true; // allocate pixels that could be freed by the system, only for pre-Lollipop devices
+            // noinspection deprecation
+            opts.inInputShareable = true; // share an input resource stream to preserve memory, only for pre-Lollipop devices
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            // noinspection deprecation
+            opts.inPreferQualityOverSpeed = false; // load quickly on Gingerbread MR1 and later, ignored as of Nougat
+        }
+        opts.inTempStorage = DecodeBuffers.acquire(); // pooled temp storage, needs to be released after decoding
+        return opts;
+    }
+
+    /**
+     * Converts the given hex digit character to its numeric value, returns {@code -1} if the character is not a hex digit.
+     */
+    private static int hexDigit(final char character) {
+        if (character >= '0' && character <= '9') {
+            return character - '0';
+        } else if (character >= 'a' && character <= 'f') {
+            return character - 'a' + 10;
+        } else if (character >= 'A' && character <= 'F') {
+            return character - 'A' + 10;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Clamps the given value to [0, 1] range.
+     */
+    private static float clampFraction(final float value) {
+        return value < 0f ? 0f : (value > 1f ? 1f : value);
+    }
+
+    /**
+     * Checks the ranges and runs the given bulk operation, either directly or split into chunks across the given executor.
+     */
+    private static void runBulk(@NonNull final int[] src, final int srcOffset, @NonNull final int[] dst, final int dstOffset, final int length,
+                                @Nullable final Executor executor, @NonNull final BulkOperation operation) {
+        Preconditions.checkPositionIndexes(srcOffset, srcOffset + length, src.length);
+        Preconditions.checkPositionIndexes(dstOffset, dstOffset + length, dst.length);
+        ParallelChunks.run(length, PARALLEL_THRESHOLD, executor, (from, count) ->
+                operation.apply(src, srcOffset + from, dst, dstOffset + from, count));
+    }
+
+    private static boolean isHardware(@NonNull final Bitmap bitmap) {
+        return isHardware(bitmap.getConfig());
+    }
+
+    private static boolean isHardware(@Nullable final Bitmap.Config config) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE;
+    }
+
+    /**
+     * Converts the given alpha value [0, 255] to a whole percent [0, 100], rounding to the nearest integer.
+     */
+    private static int toAlphaPercent(final int alpha) {
+        return (alpha * 100 + 127) / 255;
+    }
+
+    /**
+     * Blends one color component, see {@link #alphaBlendColors(int, int)}. The result is rounded up, and integer math is exact unless the
+     * blend lands on a whole number. The old floating-point math could end up a tiny bit above those, rounding them up by one more, so
+     * only those cases go through the same floating-point expression to keep the results unchanged.
+     */
+    private static int blendComponent(final int top, final int bottom, final int alphaPercent) {
+        final int scaled = top * alphaPercent + bottom * (100 - alphaPercent);
+        if (scaled % 100 != 0) {
+            return scaled / 100 + 1;
+        }
+        final double alphaFraction = alphaPercent / 100d;
+        return clampRGB((int) Math.ceil(top * alphaFraction + bottom * (1d - alphaFraction)));
+    }
+
+    /**
+     * Divides the given value by 255 and rounds the result to the nearest integer (halves go up), without using the division operator.
+     * Exact for all values in range [0, 255 * 255].
+     */
+    static int divideBy255(final int value) {
+        final int rounded = value + 0x80;
+        return (rounded + (rounded >> 8)) >> 8;
+    }
+
 }
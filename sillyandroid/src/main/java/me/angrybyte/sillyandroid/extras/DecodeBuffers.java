@@ -0,0 +1,84 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, thread-safe pool of temporary storage buffers used when decoding bitmaps (see
+ * {@link android.graphics.BitmapFactory.Options#inTempStorage}). Decoding with a fresh buffer every time creates a lot of garbage, so the
+ * buffers are returned here once decoding is done, and reused for the next decode.
+ */
+final class DecodeBuffers {
+
+    /**
+     * Size of each buffer - advice is to use 16K, but..
+     */
+    static final int BUFFER_SIZE = 32 * 1024;
+    /**
+     * How many unused buffers to keep at most, more than this only happens with many parallel decodes
+     */
+    static final int MAX_POOLED = 4;
+
+    private static final ArrayDeque<byte[]> sPool = new ArrayDeque<>(MAX_POOLED);
+    private static final AtomicLong sAllocations = new AtomicLong();
+    private static final AtomicLong sReuses = new AtomicLong();
+
+    /**
+     * Hidden default constructor.
+     */
+    private DecodeBuffers() {
+        super();
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates a new one if the pool is empty.
+     *
+     * @return A buffer of {@link #BUFFER_SIZE} bytes, should be returned using {@link #release(byte[])} once decoding is done
+     */
+    @NonNull
+    static byte[] acquire() {
+        final byte[] pooled;
+        synchronized (sPool) {
+            pooled = sPool.pollLast();
+        }
+        if (pooled != null) {
+            sReuses.incrementAndGet();
+            return pooled;
+        }
+        sAllocations.incrementAndGet();
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Returns the given buffer to the pool. Buffers of the wrong size are ignored, as well as buffers over the {@link #MAX_POOLED} limit.
+     *
+     * @param buffer Which buffer to return, must not be used by the caller after this call
+     */
+    static void release(@NonNull final byte[] buffer) {
+        if (buffer.length != BUFFER_SIZE) {
+            return;
+        }
+        synchronized (sPool) {
+            if (sPool.size() < MAX_POOLED) {
+                sPool.addLast(buffer);
+            }
+        }
+    }
+
+    /**
+     * Counts how many decode buffers were allocated so far.
+     */
+    static long getAllocations() {
+        return sAllocations.get();
+    }
+
+    /**
+     * Counts how many times a pooled decode buffer was reused instead of allocating a new one.
+     */
+    static long getReuses() {
+        return sReuses.get();
+    }
+
+}
@@ -0,0 +1,176 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.UiThread;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tints all icons ({@link ImageView} drawables) in a view hierarchy in a single pass. Icons are de-duplicated by their
+ * {@link Drawable.ConstantState}: each distinct source drawable is colored only once using {@link Coloring#colorDrawable(Context, Drawable,
+ * int)}, and all image views showing it get a new drawable created from the same colored state (drawables can't be shared between views,
+ * but their states - including the colored bitmaps - can). Color filters are not a part of the state, so drawables colored by a filter
+ * (vectors, shapes and unknown drawables) get the filter again on each copy. Source drawables are never changed, so other screens using
+ * them are not affected.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class HierarchyTinter {
+
+    /**
+     * Statistics of a single {@link #tint(ViewGroup, int)} pass.
+     */
+    public static final class Stats {
+
+        private final int mViews;
+        private final int mIcons;
+        private final int mColored;
+        private final int mShared;
+        private final long mDurationNanos;
+
+        Stats(final int views, final int icons, final int colored, final int shared, final long durationNanos) {
+            mViews = views;
+            mIcons = icons;
+            mColored = colored;
+            mShared = shared;
+            mDurationNanos = durationNanos;
+        }
+
+        /**
+         * Gets the number of visited views, including the root and all view groups.
+         */
+        public int getViewCount() {
+            return mViews;
+        }
+
+        /**
+         * Gets the number of tinted icons, i.e. image views with a drawable.
+         */
+        public int getIconCount() {
+            return mIcons;
+        }
+
+        /**
+         * Gets the number of times a drawable was actually colored. Without de-duplication, this would be the same as the icon count.
+         */
+        public int getColoredCount() {
+            return mColored;
+        }
+
+        /**
+         * Gets the number of icons that got a drawable created from an already colored state.
+         */
+        public int getSharedCount() {
+            return mShared;
+        }
+
+        /**
+         * Gets the duration of the tinting pass.
+         *
+         * @return Duration in nanoseconds
+         */
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "Stats{views=%d, icons=%d, colored=%d, shared=%d, duration=%.3fms}", mViews, mIcons, mColored,
+                    mShared, mDurationNanos / 1e6d);
+        }
+    }
+
+    /**
+     * Hidden default constructor.
+     */
+    private HierarchyTinter() {
+        super();
+    }
+
+    /**
+     * Tints all image view drawables in the given hierarchy to the given color.
+     *
+     * @param root  The root of the hierarchy, all of its descendants are visited
+     * @param color Which color to use
+     * @return Statistics of this pass
+     */
+    @NonNull
+    @UiThread
+    public static Stats tint(@NonNull final ViewGroup root, @ColorInt final int color) {
+        final long start = System.nanoTime();
+        final Context context = root.getContext();
+        final Resources resources = context.getResources();
+        // source state -> colored state, and the colored states that don't keep the color
+        final Map<Drawable.ConstantState, Drawable.ConstantState> colored = new HashMap<>();
+        final Set<Drawable.ConstantState> filtered = new HashSet<>();
+        final ArrayDeque<View> pending = new ArrayDeque<>();
+        pending.add(root);
+
+        int views = 0;
+        int icons = 0;
+        int coloredCount = 0;
+        int shared = 0;
+        View view;
+        while ((view = pending.poll()) != null) {
+            views++;
+            if (view instanceof ViewGroup) {
+                final ViewGroup group = (ViewGroup) view;
+                for (int i = 0; i < group.getChildCount(); i++) {
+                    pending.add(group.getChildAt(i));
+                }
+                continue;
+            }
+            if (!(view instanceof ImageView)) {
+                continue;
+            }
+
+            final ImageView imageView = (ImageView) view;
+            final Drawable drawable = imageView.getDrawable();
+            if (drawable == null) {
+                continue;
+            }
+            icons++;
+            final Drawable.ConstantState source = drawable.getConstantState();
+            final Drawable.ConstantState cached = source == null ? null : colored.get(source);
+            if (cached != null) {
+                final Drawable copy = cached.newDrawable(resources);
+                if (filtered.contains(cached)) {
+                    copy.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
+                }
+                imageView.setImageDrawable(copy);
+                shared++;
+                continue;
+            }
+
+            // color a copy, some drawables are colored in place and the source state may be used elsewhere
+            final Drawable copy = source == null ? drawable.mutate() : source.newDrawable(resources).mutate();
+            final Drawable result = Coloring.colorDrawable(context, copy, color);
+            coloredCount++;
+            imageView.setImageDrawable(result);
+            final Drawable.ConstantState resultState = result.getConstantState();
+            if (source != null && resultState != null) {
+                colored.put(source, resultState);
+                if (!(result instanceof BitmapDrawable) && !(result instanceof ColorDrawable)) {
+                    // colored with a color filter, which is kept in the drawable and not in its state
+                    filtered.add(resultState);
+                }
+            }
+        }
+        return new Stats(views, icons, coloredCount, shared, System.nanoTime() - start);
+    }
+
+}
@@ -0,0 +1,201 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Px;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * A {@link BitmapPool} that keeps released bitmaps in buckets by their size and config, as long as their total size is under the given
+ * limit. When the limit is reached, the least recently released bitmaps are recycled first. Only bitmaps with the exact requested size and
+ * config are reused, so this works on all API levels.
+ * <p>
+ * This pool is also a {@link ComponentCallbacks2}, so you can register it using
+ * {@link android.content.Context#registerComponentCallbacks} to have it trimmed automatically when the system runs low on memory.
+ * All methods are thread-safe.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class LruBitmapPool implements BitmapPool, ComponentCallbacks2 {
+
+    private static final class Key {
+
+        int width;
+        int height;
+        Bitmap.Config config;
+
+        Key set(final int width, final int height, @NonNull final Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+            return this;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return width == key.width && height == key.height && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + (config == null ? 0 : config.hashCode());
+            return result;
+        }
+    }
+
+    private final Map<Key, ArrayDeque<Bitmap>> mBuckets = new HashMap<>();
+    // reused for all lookups, only touched while holding the lock and never stored in the map
+    private final Key mLookupKey = new Key();
+    // keeps released bitmaps in release order, oldest first
+    private final LinkedHashSet<Bitmap> mReleaseOrder = new LinkedHashSet<>();
+    private final int mMaxBytes;
+    private int mSizeBytes;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxBytes The maximum total size of all pooled bitmaps, in bytes
+     */
+    public LruBitmapPool(@IntRange(from = 0) final int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    @NonNull
+    @Override
+    public Bitmap acquire(@Px final int width, @Px final int height, @NonNull final Bitmap.Config config) {
+        Bitmap pooled = null;
+        synchronized (this) {
+            final ArrayDeque<Bitmap> bucket = mBuckets.get(mLookupKey.set(width, height, config));
+            if (bucket != null) {
+                // take the most recently released one, it's the most likely to still be in the CPU cache
+                pooled = bucket.pollLast();
+                if (bucket.isEmpty()) {
+                    mBuckets.remove(mLookupKey);
+                }
+                mReleaseOrder.remove(pooled);
+                mSizeBytes -= byteCountOf(pooled);
+            }
+        }
+
+        if (pooled == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        pooled.eraseColor(Color.TRANSPARENT);
+        return pooled;
+    }
+
+    @Override
+    public void release(@NonNull final Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        final int byteCount = byteCountOf(bitmap);
+        if (!bitmap.isMutable() || bitmap.getConfig() == null || byteCount > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        synchronized (this) {
+            if (!mReleaseOrder.add(bitmap)) {
+                // already pooled
+                return;
+            }
+            ArrayDeque<Bitmap> bucket = mBuckets.get(mLookupKey.set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()));
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                mBuckets.put(new Key().set(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()), bucket);
+            }
+            bucket.addLast(bitmap);
+            mSizeBytes += byteCount;
+            trimToSize(mMaxBytes);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Gets the total size of all pooled bitmaps.
+     *
+     * @return Size of the pool, in bytes
+     */
+    public synchronized int getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    /**
+     * Gets the maximum total size of all pooled bitmaps, as given in the constructor.
+     *
+     * @return Maximum size of the pool, in bytes
+     */
+    public int getMaxSizeBytes() {
+        return mMaxBytes;
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            synchronized (this) {
+                trimToSize(mMaxBytes / 2);
+            }
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull final Configuration newConfig) {
+        // pooled bitmaps don't depend on the configuration
+    }
+
+    /* Private helpers */
+
+    private static int byteCountOf(@NonNull final Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Recycles the oldest pooled bitmaps until the pool size is under the given size. Needs to be invoked while holding the lock.
+     */
+    private void trimToSize(final int maxBytes) {
+        final Iterator<Bitmap> iterator = mReleaseOrder.iterator();
+        while (mSizeBytes > maxBytes && iterator.hasNext()) {
+            final Bitmap oldest = iterator.next();
+            iterator.remove();
+            //noinspection ConstantConditions - pooled bitmaps always have a config
+            final Key key = mLookupKey.set(oldest.getWidth(), oldest.getHeight(), oldest.getConfig());
+            final ArrayDeque<Bitmap> bucket = mBuckets.get(key);
+            bucket.remove(oldest);
+            if (bucket.isEmpty()) {
+                mBuckets.remove(key);
+            }
+            mSizeBytes -= byteCountOf(oldest);
+            oldest.recycle();
+        }
+    }
+
+}
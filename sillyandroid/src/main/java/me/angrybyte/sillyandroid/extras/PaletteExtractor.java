@@ -0,0 +1,363 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.Bitmap;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.support.v4.util.LruCache;
+
+/**
+ * Extracts the prominent colors from an image: the dominant color (the most common one), the vibrant color (saturated, medium lightness)
+ * and the muted color (desaturated, medium lightness). Extraction samples at most the given number of pixels, so the cost is bounded
+ * regardless of the image size, and quantizes them into a fixed {@value #HISTOGRAM_SIZE}-bin color histogram (4 bits per channel). Only the
+ * sampled rows of a bitmap are read, and when the sampling is sparse, only the sampled pixels of those rows.
+ * Palettes extracted from {@link Bitmap}s are cached by the bitmap's generation ID, so asking for the same unchanged bitmap again (e.g.
+ * when binding list items while scrolling) doesn't sample any pixels.
+ * <p>
+ * All methods are thread-safe; extractions from different threads are serialized because they share the histogram buffers.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class PaletteExtractor {
+
+    /**
+     * The default maximum number of pixels sampled from each image
+     */
+    public static final int DEFAULT_MAX_PIXELS = 112 * 112;
+    /**
+     * The default number of cached bitmap palettes
+     */
+    public static final int DEFAULT_CACHE_SIZE = 64;
+    /**
+     * The maximum allowed number of sampled pixels, keeps the histogram sums from overflowing
+     */
+    public static final int MAX_PIXELS_LIMIT = 1 << 22;
+    /**
+     * Number of bins in the color histogram
+     */
+    public static final int HISTOGRAM_SIZE = 1 << 12;
+
+    /**
+     * Pixels more transparent than this are not counted
+     */
+    private static final int MIN_ALPHA = 0x80;
+    /**
+     * Bins holding less than 1 / MIN_POPULATION_DIVISOR of all counted pixels can't become vibrant or muted swatches
+     */
+    private static final int MIN_POPULATION_DIVISOR = 200;
+    /**
+     * Sampled rows are read whole in a single call up to this sampling step, sparser rows are read pixel by pixel
+     */
+    private static final int MAX_ROW_READ_STEP = 4;
+
+    private static final float MIN_LIGHTNESS = 0.3f;
+    private static final float MAX_LIGHTNESS = 0.7f;
+    private static final float TARGET_LIGHTNESS = 0.5f;
+    private static final float MIN_VIBRANT_SATURATION = 0.35f;
+    private static final float TARGET_VIBRANT_SATURATION = 1f;
+    private static final float MAX_MUTED_SATURATION = 0.4f;
+    private static final float TARGET_MUTED_SATURATION = 0.3f;
+
+    private static final float WEIGHT_SATURATION = 3f;
+    private static final float WEIGHT_LIGHTNESS = 6f;
+    private static final float WEIGHT_POPULATION = 1f;
+
+    /**
+     * The result of a palette extraction. All colors are fully opaque.
+     */
+    public static final class Palette {
+
+        private static final int NO_COLOR = 0;
+
+        @ColorInt
+        private final int mDominant;
+        @ColorInt
+        private final int mVibrant;
+        @ColorInt
+        private final int mMuted;
+        private final int mPixelCount;
+
+        Palette(@ColorInt final int dominant, @ColorInt final int vibrant, @ColorInt final int muted, final int pixelCount) {
+            mDominant = dominant;
+            mVibrant = vibrant;
+            mMuted = muted;
+            mPixelCount = pixelCount;
+        }
+
+        /**
+         * Gets the most common color in the image.
+         *
+         * @param fallback Which color to return if the image had no visible pixels
+         * @return The dominant color, or the fallback
+         */
+        @ColorInt
+        public int getDominantColor(@ColorInt final int fallback) {
+            return mDominant == NO_COLOR ? fallback : mDominant;
+        }
+
+        /**
+         * Gets the most prominent saturated color of medium lightness.
+         *
+         * @param fallback Which color to return if the image had no such color
+         * @return The vibrant color, or the fallback
+         */
+        @ColorInt
+        public int getVibrantColor(@ColorInt final int fallback) {
+            return mVibrant == NO_COLOR ? fallback : mVibrant;
+        }
+
+        /**
+         * Gets the most prominent desaturated color of medium lightness.
+         *
+         * @param fallback Which color to return if the image had no such color
+         * @return The muted color, or the fallback
+         */
+        @ColorInt
+        public int getMutedColor(@ColorInt final int fallback) {
+            return mMuted == NO_COLOR ? fallback : mMuted;
+        }
+
+        /**
+         * Gets the number of pixels that were sampled and counted (visible pixels only).
+         *
+         * @return How many pixels this palette is based on
+         */
+        public int getPixelCount() {
+            return mPixelCount;
+        }
+    }
+
+    private final int mMaxPixels;
+    @NonNull
+    private final LruCache<Integer, Palette> mCache;
+
+    // scratch buffers, reused by all extractions under the instance lock
+    private final int[] mCounts = new int[HISTOGRAM_SIZE];
+    private final int[] mRedSums = new int[HISTOGRAM_SIZE];
+    private final int[] mGreenSums = new int[HISTOGRAM_SIZE];
+    private final int[] mBlueSums = new int[HISTOGRAM_SIZE];
+    private int[] mRow = new int[0];
+    private int mCounted;
+
+    /**
+     * Creates a new extractor with the {@link #DEFAULT_MAX_PIXELS} pixel budget and {@link #DEFAULT_CACHE_SIZE} cached palettes.
+     */
+    public PaletteExtractor() {
+        this(DEFAULT_MAX_PIXELS, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new extractor.
+     *
+     * @param maxPixels The maximum number of pixels sampled from each image, larger images are sampled sparsely
+     * @param cacheSize How many bitmap palettes to keep cached at most
+     */
+    public PaletteExtractor(@IntRange(from = 1, to = MAX_PIXELS_LIMIT) final int maxPixels, @IntRange(from = 1) final int cacheSize) {
+        Preconditions.checkArgument(maxPixels > 0 && maxPixels <= MAX_PIXELS_LIMIT, "Invalid pixel budget %s", maxPixels);
+        mMaxPixels = maxPixels;
+        mCache = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Extracts the palette from the given bitmap, or returns the cached palette if the same bitmap was used before and its pixels
+     * didn't change since (see {@link Bitmap#getGenerationId()}).
+     *
+     * @param bitmap Which bitmap to analyze, must not be recycled
+     * @return The extracted palette
+     */
+    @NonNull
+    @WorkerThread
+    public Palette extract(@NonNull final Bitmap bitmap) {
+        Preconditions.checkArgument(!bitmap.isRecycled(), "Can't extract a palette from a recycled bitmap");
+        final Integer key = bitmap.getGenerationId();
+        final Palette cached = mCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Palette palette;
+        synchronized (this) {
+            final int width = bitmap.getWidth();
+            final int height = bitmap.getHeight();
+            final int step = calculateStep(width, height, mMaxPixels);
+            final boolean readRows = step <= MAX_ROW_READ_STEP;
+            if (readRows && mRow.length < width) {
+                mRow = new int[width];
+            }
+            resetHistogram();
+            for (int y = 0; y < height; y += step) {
+                if (readRows) {
+                    bitmap.getPixels(mRow, 0, width, 0, y, width, 1);
+                    for (int x = 0; x < width; x += step) {
+                        count(mRow[x]);
+                    }
+                } else {
+                    // most of the row would be skipped, so don't copy it
+                    for (int x = 0; x < width; x += step) {
+                        count(bitmap.getPixel(x, y));
+                    }
+                }
+            }
+            palette = buildPalette();
+        }
+        mCache.put(key, palette);
+        return palette;
+    }
+
+    /**
+     * Extracts the palette from the given range of colors. Results are not cached.
+     *
+     * @param pixels Which colors to analyze, in ARGB format (as returned from {@link Bitmap#getPixels})
+     * @param offset Index of the first color to analyze
+     * @param length How many colors to analyze
+     * @return The extracted palette
+     */
+    @NonNull
+    public synchronized Palette extract(@NonNull final int[] pixels, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, pixels.length);
+        // ceil(length / maxPixels)
+        final int step = Math.max(1, (int) ((length + (long) mMaxPixels - 1) / mMaxPixels));
+        resetHistogram();
+        final int end = offset + length;
+        for (int i = offset; i < end; i += step) {
+            count(pixels[i]);
+        }
+        return buildPalette();
+    }
+
+    /**
+     * Removes all cached palettes.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Gets the number of currently cached palettes.
+     *
+     * @return How many bitmap palettes are cached
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Calculates the sampling step in both directions, so that no more than {@code maxPixels} pixels are sampled from the image.
+     *
+     * @param width     Image width
+     * @param height    Image height
+     * @param maxPixels The pixel budget
+     * @return The sampling step, 1 or more
+     */
+    static int calculateStep(final int width, final int height, final int maxPixels) {
+        int step = Math.max(1, (int) Math.sqrt((double) width * height / maxPixels));
+        // the square root is only an estimate, fix it up because of the rounding
+        while (samplesPerAxis(width, step) * samplesPerAxis(height, step) > maxPixels) {
+            step++;
+        }
+        return step;
+    }
+
+    /* Private helpers */
+
+    private static long samplesPerAxis(final int size, final int step) {
+        return (size + step - 1) / step;
+    }
+
+    private void resetHistogram() {
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            mCounts[i] = 0;
+            mRedSums[i] = 0;
+            mGreenSums[i] = 0;
+            mBlueSums[i] = 0;
+        }
+        mCounted = 0;
+    }
+
+    private void count(final int pixel) {
+        if ((pixel >>> 24) < MIN_ALPHA) {
+            return;
+        }
+        final int red = (pixel >> 16) & 0xFF;
+        final int green = (pixel >> 8) & 0xFF;
+        final int blue = pixel & 0xFF;
+        final int bin = ((red >> 4) << 8) | ((green >> 4) << 4) | (blue >> 4);
+        mCounts[bin]++;
+        mRedSums[bin] += red;
+        mGreenSums[bin] += green;
+        mBlueSums[bin] += blue;
+        mCounted++;
+    }
+
+    /**
+     * Picks the swatches from the current histogram. Needs to be invoked while holding the lock.
+     */
+    @NonNull
+    private Palette buildPalette() {
+        int dominantBin = -1;
+        int maxCount = 0;
+        for (int bin = 0; bin < HISTOGRAM_SIZE; bin++) {
+            if (mCounts[bin] > maxCount) {
+                maxCount = mCounts[bin];
+                dominantBin = bin;
+            }
+        }
+        if (dominantBin < 0) {
+            return new Palette(Palette.NO_COLOR, Palette.NO_COLOR, Palette.NO_COLOR, 0);
+        }
+
+        final int minPopulation = Math.max(1, mCounted / MIN_POPULATION_DIVISOR);
+        int vibrantBin = -1;
+        int mutedBin = -1;
+        float vibrantScore = Float.NEGATIVE_INFINITY;
+        float mutedScore = Float.NEGATIVE_INFINITY;
+        for (int bin = 0; bin < HISTOGRAM_SIZE; bin++) {
+            final int population = mCounts[bin];
+            if (population < minPopulation) {
+                continue;
+            }
+            final int red = mRedSums[bin] / population;
+            final int green = mGreenSums[bin] / population;
+            final int blue = mBlueSums[bin] / population;
+            final int max = Math.max(red, Math.max(green, blue));
+            final int min = Math.min(red, Math.min(green, blue));
+            final float lightness = (max + min) / 510f;
+            if (lightness < MIN_LIGHTNESS || lightness > MAX_LIGHTNESS) {
+                continue;
+            }
+            final float saturation = max == min ? 0f : (max - min) / (255f - Math.abs(max + min - 255f));
+            final float populationScore = WEIGHT_POPULATION * population / maxCount;
+            final float lightnessScore = WEIGHT_LIGHTNESS * (1f - Math.abs(lightness - TARGET_LIGHTNESS));
+            final float baseScore = lightnessScore + populationScore;
+            if (saturation >= MIN_VIBRANT_SATURATION) {
+                final float score = WEIGHT_SATURATION * (1f - Math.abs(saturation - TARGET_VIBRANT_SATURATION)) + baseScore;
+                if (score > vibrantScore) {
+                    vibrantScore = score;
+                    vibrantBin = bin;
+                }
+            }
+            if (saturation <= MAX_MUTED_SATURATION) {
+                final float score = WEIGHT_SATURATION * (1f - Math.abs(saturation - TARGET_MUTED_SATURATION)) + baseScore;
+                if (score > mutedScore) {
+                    mutedScore = score;
+                    mutedBin = bin;
+                }
+            }
+        }
+        if (mutedBin == vibrantBin) {
+            // a color in the overlapping saturation range can't be both
+            mutedBin = -1;
+        }
+        return new Palette(averageColor(dominantBin), averageColor(vibrantBin), averageColor(mutedBin), mCounted);
+    }
+
+    @ColorInt
+    private int averageColor(final int bin) {
+        if (bin < 0) {
+            return Palette.NO_COLOR;
+        }
+        final int population = mCounts[bin];
+        return 0xFF000000 | (mRedSums[bin] / population) << 16 | (mGreenSums[bin] / population) << 8 | (mBlueSums[bin] / population);
+    }
+
+}
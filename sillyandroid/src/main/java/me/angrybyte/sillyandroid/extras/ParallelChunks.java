@@ -0,0 +1,83 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits a range of work items into chunks and processes them in parallel using an {@link Executor}. The calling thread always processes
+ * the first chunk, and then waits for the other chunks to complete. Fork-join pools are not used because they need API 21+.
+ * <p>
+ * Because the calling thread blocks until all chunks are done, this must never be called from a task running on the same executor. If all
+ * of the executor's threads end up waiting for their chunks (e.g. with a single-thread executor), nothing runs them and the call deadlocks.
+ */
+final class ParallelChunks {
+
+    /**
+     * A chunk of work, processing {@code count} items starting from {@code from}.
+     */
+    interface Chunk {
+        void process(int from, int count);
+    }
+
+    /**
+     * Hidden default constructor.
+     */
+    private ParallelChunks() {
+        super();
+    }
+
+    /**
+     * Processes all items, either directly on the calling thread or split into chunks (at most one per CPU core) across the executor.
+     *
+     * @param total     How many items to process
+     * @param threshold Minimum number of items needed to go parallel, each chunk gets at least half of this
+     * @param executor  Which executor to use, or {@code null} to process everything on the calling thread
+     * @param chunk     The work to do
+     * @throws IllegalArgumentException If the total is negative or the threshold is smaller than 2
+     */
+    static void run(@IntRange(from = 0) final int total, @IntRange(from = 2) final int threshold, @Nullable final Executor executor,
+                    @NonNull final Chunk chunk) {
+        Preconditions.checkArgument(total >= 0, "Invalid total %s", total);
+        Preconditions.checkArgument(threshold >= 2, "Threshold %s is smaller than 2", threshold);
+        final int chunks = Math.min(Runtime.getRuntime().availableProcessors(), total / (threshold / 2));
+        if (executor == null || total < threshold || chunks < 2) {
+            chunk.process(0, total);
+            return;
+        }
+
+        final int chunkSize = (total + chunks - 1) / chunks;
+        final CountDownLatch latch = new CountDownLatch((total - 1) / chunkSize);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int start = chunkSize; start < total; start += chunkSize) {
+            final int from = start;
+            final int count = Math.min(chunkSize, total - start);
+            executor.execute(() -> {
+                try {
+                    chunk.process(from, count);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        // the first chunk runs on the calling thread
+        chunk.process(0, chunkSize);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the parallel chunks", e);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Failed to process a parallel chunk", failure.get());
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.graphics.Bitmap;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
+
+/**
+ * A pure-Java pixel tinting engine. Works on plain {@code int[]} ARGB pixel buffers (as returned by {@link Bitmap#getPixels}), so it can
+ * also be used and tested without a device. Large buffers can be split into row stripes and tinted in parallel using an {@link Executor}.
+ * <p>
+ * All tint modes give the same results as their {@link android.graphics.PorterDuff.Mode} counterparts used in a color filter, where the
+ * tint color is the source and the pixel is the destination. Pixel buffers are non-premultiplied, fully transparent pixels become
+ * {@code 0}.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class PixelTinter {
+
+    /**
+     * Same as {@link android.graphics.PorterDuff.Mode#SRC_ATOP}, the tint color covers the pixel while the pixel's alpha is kept
+     */
+    public static final int MODE_SRC_ATOP = 0;
+    /**
+     * Same as {@link android.graphics.PorterDuff.Mode#MULTIPLY}, all components are multiplied, this darkens the pixels
+     */
+    public static final int MODE_MULTIPLY = 1;
+    /**
+     * Same as {@link android.graphics.PorterDuff.Mode#SCREEN}, inverted components are multiplied, this lightens the pixels
+     */
+    public static final int MODE_SCREEN = 2;
+
+    @IntDef({MODE_SRC_ATOP, MODE_MULTIPLY, MODE_SCREEN})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface TintMode {}
+
+    /**
+     * Hidden default constructor.
+     */
+    private PixelTinter() {
+        super();
+    }
+
+    /**
+     * Tints the given pixel buffer in place. If an executor is given and the buffer has more than {@link Coloring#PARALLEL_THRESHOLD}
+     * pixels, it is split into row stripes that are tinted in parallel. The calling thread tints one of the stripes, and waits for the
+     * rest to complete, so this must not be called from a task running on the same executor.
+     *
+     * @param pixels   The pixel buffer, ARGB colors
+     * @param offset   Index of the first pixel to tint
+     * @param stride   Number of entries in the buffer between the starts of two rows, at least {@code width}
+     * @param width    How many pixels to tint in each row
+     * @param height   How many rows to tint
+     * @param color    Which color to tint with
+     * @param mode     Which tint mode to use
+     * @param executor Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     */
+    public static void tint(@NonNull final int[] pixels, final int offset, final int stride, @IntRange(from = 0) final int width,
+                            @IntRange(from = 0) final int height, @ColorInt final int color, @TintMode final int mode,
+                            @Nullable final Executor executor) {
+        Preconditions.checkArgument(width >= 0 && height >= 0, "Invalid size %sx%s", width, height);
+        Preconditions.checkArgument(stride >= width, "Stride %s is smaller than width %s", stride, width);
+        Preconditions.checkArgument(mode >= MODE_SRC_ATOP && mode <= MODE_SCREEN, "Unknown tint mode %s", mode);
+        if (width == 0 || height == 0) {
+            return;
+        }
+        Preconditions.checkPositionIndexes(offset, offset + (height - 1) * stride + width, pixels.length);
+
+        final int minRows = Math.max(2, Coloring.PARALLEL_THRESHOLD / width);
+        ParallelChunks.run(height, minRows, executor, (fromRow, rows) -> {
+            for (int row = fromRow; row < fromRow + rows; row++) {
+                tintRow(pixels, offset + row * stride, width, color, mode);
+            }
+        });
+    }
+
+    /**
+     * Tints the given mutable bitmap in place, by reading and writing pixels in bands of rows. Only a small pixel buffer is allocated, so
+     * the peak memory usage doesn't depend on the bitmap size. Each band is tinted as described in
+     * {@link #tint(int[], int, int, int, int, int, int, Executor)}.
+     *
+     * @param bitmap   The bitmap to tint, must be mutable
+     * @param color    Which color to tint with
+     * @param mode     Which tint mode to use
+     * @param executor Which executor to use for parallel processing, or {@code null} to process everything on the calling thread
+     * @return The same bitmap instance, now tinted
+     */
+    @NonNull
+    public static Bitmap tint(@NonNull final Bitmap bitmap, @ColorInt final int color, @TintMode final int mode,
+                              @Nullable final Executor executor) {
+        Preconditions.checkArgument(bitmap.isMutable(), "Bitmap must be mutable to be tinted in place");
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        if (width == 0 || height == 0) {
+            return bitmap;
+        }
+
+        final int bandPixels = Coloring.PARALLEL_THRESHOLD * Runtime.getRuntime().availableProcessors();
+        final int bandRows = Math.max(1, Math.min(height, bandPixels / width));
+        final int[] band = new int[bandRows * width];
+        for (int row = 0; row < height; row += bandRows) {
+            final int rows = Math.min(bandRows, height - row);
+            bitmap.getPixels(band, 0, width, 0, row, width, rows);
+            tint(band, 0, width, width, rows, color, mode, executor);
+            bitmap.setPixels(band, 0, width, 0, row, width, rows);
+        }
+        return bitmap;
+    }
+
+    /* Private helpers */
+
+    private static void tintRow(@NonNull final int[] pixels, final int start, final int width, final int color, final int mode) {
+        switch (mode) {
+            case MODE_SRC_ATOP:
+                srcAtopRow(pixels, start, start + width, color);
+                break;
+            case MODE_MULTIPLY:
+                multiplyRow(pixels, start, start + width, color);
+                break;
+            case MODE_SCREEN:
+                screenRow(pixels, start, start + width, color);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void srcAtopRow(@NonNull final int[] pixels, final int start, final int end, final int color) {
+        final int alpha = color >>> 24;
+        final int inverseAlpha = 0xFF - alpha;
+        final int red = ((color >> 16) & 0xFF) * alpha;
+        final int green = ((color >> 8) & 0xFF) * alpha;
+        final int blue = (color & 0xFF) * alpha;
+        for (int i = start; i < end; i++) {
+            final int pixel = pixels[i];
+            if ((pixel & 0xFF000000) == 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            final int r = Coloring.divideBy255(red + ((pixel >> 16) & 0xFF) * inverseAlpha);
+            final int g = Coloring.divideBy255(green + ((pixel >> 8) & 0xFF) * inverseAlpha);
+            final int b = Coloring.divideBy255(blue + (pixel & 0xFF) * inverseAlpha);
+            pixels[i] = (pixel & 0xFF000000) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static void multiplyRow(@NonNull final int[] pixels, final int start, final int end, final int color) {
+        final int alpha = color >>> 24;
+        final int red = (color >> 16) & 0xFF;
+        final int green = (color >> 8) & 0xFF;
+        final int blue = color & 0xFF;
+        for (int i = start; i < end; i++) {
+            final int pixel = pixels[i];
+            final int a = Coloring.divideBy255(alpha * (pixel >>> 24));
+            if (a == 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            final int r = Coloring.divideBy255(red * ((pixel >> 16) & 0xFF));
+            final int g = Coloring.divideBy255(green * ((pixel >> 8) & 0xFF));
+            final int b = Coloring.divideBy255(blue * (pixel & 0xFF));
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    private static void screenRow(@NonNull final int[] pixels, final int start, final int end, final int color) {
+        final int alpha = color >>> 24;
+        // premultiplied tint components
+        final int red = Coloring.divideBy255(((color >> 16) & 0xFF) * alpha);
+        final int green = Coloring.divideBy255(((color >> 8) & 0xFF) * alpha);
+        final int blue = Coloring.divideBy255((color & 0xFF) * alpha);
+        for (int i = start; i < end; i++) {
+            final int pixel = pixels[i];
+            final int pixelAlpha = pixel >>> 24;
+            final int a = alpha + pixelAlpha - Coloring.divideBy255(alpha * pixelAlpha);
+            if (a == 0) {
+                pixels[i] = 0;
+                continue;
+            }
+            final int r = screenComponent(red, Coloring.divideBy255(((pixel >> 16) & 0xFF) * pixelAlpha), a);
+            final int g = screenComponent(green, Coloring.divideBy255(((pixel >> 8) & 0xFF) * pixelAlpha), a);
+            final int b = screenComponent(blue, Coloring.divideBy255((pixel & 0xFF) * pixelAlpha), a);
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Screens the two premultiplied components, and un-premultiplies the result using the given result alpha.
+     */
+    private static int screenComponent(final int tint, final int pixel, final int alpha) {
+        final int premultiplied = tint + pixel - Coloring.divideBy255(tint * pixel);
+        return Math.min(0xFF, (premultiplied * 0xFF + alpha / 2) / alpha);
+    }
+
+}
@@ -0,0 +1,231 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.support.v4.util.LruCache;
+
+/**
+ * A memoizing version of the {@link Coloring}'s state drawable factories: {@link Coloring#createStateList},
+ * {@link Coloring#createRippleDrawable} and {@link Coloring#createResponsiveDrawable}. Each distinct combination of arguments is built only
+ * once, and its {@link Drawable.ConstantState} is cached; all later calls with the same arguments return a new drawable from that state.
+ * The number of cached combinations is capped, the least recently used ones are evicted first.
+ * <p>
+ * Drawables returned from this cache share their inner state, so call {@link Drawable#mutate()} before changing any of their properties.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class StateDrawableCache {
+
+    private static final int TYPE_STATE_LIST = 1;
+    private static final int TYPE_RIPPLE = 2;
+
+    private static final class Key {
+
+        int type;
+        @ColorInt
+        int normal;
+        @ColorInt
+        int clicked;
+        @ColorInt
+        int checked;
+        boolean shouldFade;
+        int cornerRadius;
+        // bounds are mutable, keep the values instead of the instance
+        boolean hasBounds;
+        int left;
+        int top;
+        int right;
+        int bottom;
+
+        void set(final int type, @ColorInt final int normal, @ColorInt final int clicked, @ColorInt final int checked, final boolean shouldFade,
+                final int cornerRadius, @Nullable final Rect bounds) {
+            this.type = type;
+            this.normal = normal;
+            this.clicked = clicked;
+            this.checked = checked;
+            this.shouldFade = shouldFade;
+            this.cornerRadius = cornerRadius;
+            hasBounds = bounds != null;
+            left = hasBounds ? bounds.left : 0;
+            top = hasBounds ? bounds.top : 0;
+            right = hasBounds ? bounds.right : 0;
+            bottom = hasBounds ? bounds.bottom : 0;
+        }
+
+        @NonNull
+        Key copy() {
+            final Key copy = new Key();
+            copy.type = type;
+            copy.normal = normal;
+            copy.clicked = clicked;
+            copy.checked = checked;
+            copy.shouldFade = shouldFade;
+            copy.cornerRadius = cornerRadius;
+            copy.hasBounds = hasBounds;
+            copy.left = left;
+            copy.top = top;
+            copy.right = right;
+            copy.bottom = bottom;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return type == key.type && normal == key.normal && clicked == key.clicked && checked == key.checked
+                    && shouldFade == key.shouldFade && cornerRadius == key.cornerRadius && hasBounds == key.hasBounds
+                    && left == key.left && top == key.top && right == key.right && bottom == key.bottom;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type;
+            result = 31 * result + normal;
+            result = 31 * result + clicked;
+            result = 31 * result + checked;
+            result = 31 * result + (shouldFade ? 1 : 0);
+            result = 31 * result + cornerRadius;
+            result = 31 * result + (hasBounds ? 1 : 0);
+            result = 31 * result + left;
+            result = 31 * result + top;
+            result = 31 * result + right;
+            result = 31 * result + bottom;
+            return result;
+        }
+    }
+
+    @NonNull
+    private final LruCache<Key, Drawable.ConstantState> mCache;
+    // reused for all lookups, only touched while holding its own lock and never stored in the cache
+    private final Key mLookupKey = new Key();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries How many distinct drawables to keep at most
+     */
+    public StateDrawableCache(@IntRange(from = 1) final int maxEntries) {
+        mCache = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Same as {@link Coloring#createStateList(Context, int, int, int, boolean, int)}, but cached.
+     *
+     * @param context      Which context to use
+     * @param normal       Color for the normal/idle state
+     * @param clicked      Color for the clicked/pressed state
+     * @param checked      Color for the checked/selected state (makes sense only for Honeycomb and later)
+     * @param shouldFade   Set to {@code true} to enable the fading effect, {@code false} to disable it
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @return A {@link StateListDrawable} drawable object, new instance each time
+     */
+    @NonNull
+    public StateListDrawable createStateList(@NonNull final Context context, @ColorInt final int normal, @ColorInt final int clicked,
+                                             @ColorInt final int checked, final boolean shouldFade, @IntRange(from = 0) final int cornerRadius) {
+        final Key key;
+        synchronized (mLookupKey) {
+            mLookupKey.set(TYPE_STATE_LIST, normal, clicked, checked, shouldFade, cornerRadius, null);
+            final Drawable.ConstantState cached = mCache.get(mLookupKey);
+            if (cached != null) {
+                return (StateListDrawable) cached.newDrawable(context.getResources());
+            }
+            key = mLookupKey.copy();
+        }
+
+        final StateListDrawable created = Coloring.createStateList(context, normal, clicked, checked, shouldFade, cornerRadius);
+        store(key, created);
+        return created;
+    }
+
+    /**
+     * Same as {@link Coloring#createRippleDrawable(int, int, Rect, int)}, but cached.
+     *
+     * @param context      Which context to use
+     * @param normalColor  Color for the idle/normal state
+     * @param rippleColor  Color for the ripple effect
+     * @param bounds       Clipping bounds for the ripple state. Set to {@code null} to get a borderless ripple
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @return A fully colored RippleDrawable, new instance each time
+     */
+    @NonNull
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    public RippleDrawable createRippleDrawable(@NonNull final Context context, @ColorInt final int normalColor, @ColorInt final int rippleColor,
+                                               @Nullable final Rect bounds, @IntRange(from = 0) final int cornerRadius) {
+        final Key key;
+        synchronized (mLookupKey) {
+            mLookupKey.set(TYPE_RIPPLE, normalColor, rippleColor, 0, false, cornerRadius, bounds);
+            final Drawable.ConstantState cached = mCache.get(mLookupKey);
+            if (cached != null) {
+                return (RippleDrawable) cached.newDrawable(context.getResources());
+            }
+            key = mLookupKey.copy();
+        }
+
+        final RippleDrawable created = Coloring.createRippleDrawable(normalColor, rippleColor, bounds, cornerRadius);
+        store(key, created);
+        return created;
+    }
+
+    /**
+     * Same as {@link Coloring#createResponsiveDrawable(Context, int, int, int, boolean, int, Rect)}, but cached.
+     *
+     * @param context      Which context to use
+     * @param normal       Color for the normal/idle state
+     * @param clicked      Color for the clicked/pressed state
+     * @param checked      Color for the checked/selected state
+     * @param shouldFade   Set to true to enable the fading effect, false otherwise
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @param bounds       Clipping bounds for the resulting drawable (used only for Ripples). Set to {@code null} to get borderless ripples
+     * @return A click-responsive drawable, new instance each time
+     */
+    @NonNull
+    public Drawable createResponsiveDrawable(@NonNull final Context context, @ColorInt final int normal, @ColorInt final int clicked,
+                                             @ColorInt final int checked, final boolean shouldFade, @IntRange(from = 0) final int cornerRadius,
+                                             @Nullable final Rect bounds) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return createRippleDrawable(context, normal, clicked, bounds, cornerRadius);
+        } else {
+            return createStateList(context, normal, clicked, checked, shouldFade, cornerRadius);
+        }
+    }
+
+    /**
+     * Gets the number of currently cached drawables.
+     *
+     * @return How many distinct drawables are cached
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * Removes all cached drawables. Drawables previously returned from this cache are still valid.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    /* Private helpers */
+
+    private void store(@NonNull final Key key, @NonNull final Drawable created) {
+        final Drawable.ConstantState state = created.getConstantState();
+        if (state != null) {
+            mCache.put(key, state);
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.support.v4.util.LruCache;
+
+/**
+ * All color variants usually derived from a single base (brand) color, computed once: the darker and lighter versions, the dimmed and
+ * opacified versions, the contrast color and the contrast text colors. State list and ripple drawables built from these colors are
+ * cached too, so all components using the same palette share their drawable states.
+ * <p>
+ * Palettes are immutable. Use {@link #of(int)} to get a shared palette for the given base color; when the base color changes (e.g. when
+ * switching to a dark theme), simply get the palette for the new color - palettes of the recently used base colors are kept, so switching
+ * back and forth doesn't derive anything again.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ThemePalette {
+
+    /**
+     * How many shared palettes created by {@link #of(int)} are kept for reuse
+     */
+    public static final int SHARED_PALETTES_CACHE_SIZE = 8;
+    /**
+     * How many distinct drawables (by shape and fading) each palette keeps
+     */
+    public static final int DRAWABLES_CACHE_SIZE = 8;
+
+    private static final LruCache<Integer, ThemePalette> sPalettes = new LruCache<>(SHARED_PALETTES_CACHE_SIZE);
+
+    @ColorInt
+    private final int mBase;
+    @ColorInt
+    private final int mDarker;
+    @ColorInt
+    private final int mLighter;
+    @ColorInt
+    private final int mDimmed;
+    @ColorInt
+    private final int mOpacified;
+    @ColorInt
+    private final int mContrast;
+    @NonNull
+    private final ColorStateList mContrastTextColors;
+    @NonNull
+    private final StateDrawableCache mDrawables = new StateDrawableCache(DRAWABLES_CACHE_SIZE);
+
+    /**
+     * Creates a new palette, deriving all color variants from the given base color. Consider using {@link #of(int)} instead.
+     *
+     * @param base The base color of this palette
+     */
+    public ThemePalette(@ColorInt final int base) {
+        mBase = base;
+        mDarker = Coloring.darkenColor(base);
+        mLighter = Coloring.lightenColor(base);
+        mDimmed = Coloring.dimColor(base);
+        mOpacified = Coloring.opacifyColor(base);
+        mContrast = Coloring.contrastColor(base);
+        mContrastTextColors = Coloring.createContrastTextColors(mContrast, mDarker);
+    }
+
+    /**
+     * Gets the shared palette for the given base color, creating it if needed.
+     *
+     * @param base The base color of the palette
+     * @return The palette, the same instance is returned for the same color while it's among the last
+     * {@link #SHARED_PALETTES_CACHE_SIZE} used colors
+     */
+    @NonNull
+    public static ThemePalette of(@ColorInt final int base) {
+        ThemePalette palette = sPalettes.get(base);
+        if (palette == null) {
+            palette = new ThemePalette(base);
+            sPalettes.put(base, palette);
+        }
+        return palette;
+    }
+
+    /**
+     * Gets the base color, the one this palette was created from.
+     */
+    @ColorInt
+    public int getBaseColor() {
+        return mBase;
+    }
+
+    /**
+     * Gets the base color darkened using {@link Coloring#darkenColor(int)}. Used for the clicked/pressed states.
+     */
+    @ColorInt
+    public int getDarkerColor() {
+        return mDarker;
+    }
+
+    /**
+     * Gets the base color lightened using {@link Coloring#lightenColor(int)}. Used for the checked/selected states.
+     */
+    @ColorInt
+    public int getLighterColor() {
+        return mLighter;
+    }
+
+    /**
+     * Gets the base color dimmed using {@link Coloring#dimColor(int)}.
+     */
+    @ColorInt
+    public int getDimmedColor() {
+        return mDimmed;
+    }
+
+    /**
+     * Gets the base color opacified using {@link Coloring#opacifyColor(int)}.
+     */
+    @ColorInt
+    public int getOpacifiedColor() {
+        return mOpacified;
+    }
+
+    /**
+     * Gets the contrast color for the base color, as given by {@link Coloring#contrastColor(int)}. Use this for text and icons drawn
+     * over the base color.
+     */
+    @ColorInt
+    public int getContrastColor() {
+        return mContrast;
+    }
+
+    /**
+     * Gets the text colors for text drawn over this palette's drawables, as given by {@link Coloring#createContrastTextColors(int, int)}:
+     * the contrast color while idle, and the color contrasted to the darker (pressed) color otherwise.
+     *
+     * @return An immutable color state list, always the same instance
+     */
+    @NonNull
+    public ColorStateList getContrastTextColors() {
+        return mContrastTextColors;
+    }
+
+    /**
+     * Same as {@link Coloring#createStateList(Context, int, int, int, boolean, int)}, using the base color for the normal state, the
+     * darker color for the clicked state and the lighter color for the checked state. Cached.
+     *
+     * @param context      Which context to use
+     * @param shouldFade   Set to {@code true} to enable the fading effect, {@code false} to disable it
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @return A {@link StateListDrawable} drawable object, new instance each time
+     */
+    @NonNull
+    public StateListDrawable createStateList(@NonNull final Context context, final boolean shouldFade,
+                                             @IntRange(from = 0) final int cornerRadius) {
+        return mDrawables.createStateList(context, mBase, mDarker, mLighter, shouldFade, cornerRadius);
+    }
+
+    /**
+     * Same as {@link Coloring#createRippleDrawable(int, int, Rect, int)}, using the base color for the normal state and the darker color
+     * for the ripple. Cached.
+     *
+     * @param context      Which context to use
+     * @param bounds       Clipping bounds for the ripple state. Set to {@code null} to get a borderless ripple
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @return A fully colored RippleDrawable, new instance each time
+     */
+    @NonNull
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    public RippleDrawable createRippleDrawable(@NonNull final Context context, @Nullable final Rect bounds,
+                                               @IntRange(from = 0) final int cornerRadius) {
+        return mDrawables.createRippleDrawable(context, mBase, mDarker, bounds, cornerRadius);
+    }
+
+    /**
+     * Same as {@link Coloring#createResponsiveDrawable(Context, int, int, int, boolean, int, Rect)}, using this palette's colors as
+     * described in {@link #createStateList(Context, boolean, int)}. Cached.
+     *
+     * @param context      Which context to use
+     * @param shouldFade   Set to true to enable the fading effect, false otherwise
+     * @param cornerRadius Set to round the corners on rectangular drawables, 0 to disable
+     * @param bounds       Clipping bounds for the resulting drawable (used only for Ripples). Set to {@code null} to get borderless ripples
+     * @return A click-responsive drawable, new instance each time
+     */
+    @NonNull
+    public Drawable createResponsiveDrawable(@NonNull final Context context, final boolean shouldFade,
+                                             @IntRange(from = 0) final int cornerRadius, @Nullable final Rect bounds) {
+        return mDrawables.createResponsiveDrawable(context, mBase, mDarker, mLighter, shouldFade, cornerRadius, bounds);
+    }
+
+}
@@ -0,0 +1,259 @@
+package me.angrybyte.sillyandroid.extras;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * A bounded cache of bitmap drawables tinted using {@link Coloring}. Tinted bitmaps are cached by their source (a drawable resource ID or
+ * a source drawable's {@link Drawable.ConstantState}) and the tint color, and all drawables returned for the same source and color share
+ * the same {@link Drawable.ConstantState}, i.e. the same tinted bitmap. When the total size of the cached bitmaps goes over the limit,
+ * the least recently used ones are evicted.
+ * <p>
+ * Source constant states are only weakly referenced (by identity), so the cache never keeps source bitmaps alive and its size is the size
+ * of the tinted bitmaps alone. Once a source is garbage collected, its tinted bitmaps are removed from the cache.
+ * <p>
+ * This cache is also a {@link ComponentCallbacks2}, so you can register it using {@link Context#registerComponentCallbacks} to have it
+ * trimmed automatically when the system runs low on memory, and cleared on configuration changes (resources may change then).
+ * <p>
+ * Note that tinted drawables are shared, so you should not change their bitmaps. Call {@link Drawable#mutate()} before changing any other
+ * property of a drawable that came from this cache.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class TintCache implements ComponentCallbacks2 {
+
+    private static final class SourceReference extends WeakReference<Drawable.ConstantState> {
+
+        @Nullable
+        Key key;
+
+        SourceReference(@NonNull final Drawable.ConstantState source, @Nullable final ReferenceQueue<Drawable.ConstantState> queue) {
+            super(source, queue);
+        }
+    }
+
+    private static final class Key {
+
+        @DrawableRes
+        final int drawableId;
+        @Nullable
+        final SourceReference source;
+        final int sourceHash;
+        @ColorInt
+        final int color;
+
+        Key(@DrawableRes final int drawableId, @Nullable final SourceReference source, @ColorInt final int color) {
+            this.drawableId = drawableId;
+            this.source = source;
+            this.sourceHash = source == null ? 0 : System.identityHashCode(source.get());
+            this.color = color;
+            if (source != null) {
+                source.key = this;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            if (drawableId != key.drawableId || color != key.color || sourceHash != key.sourceHash) {
+                return false;
+            }
+            if (source == null || key.source == null) {
+                return source == key.source;
+            }
+            // a collected source doesn't match anything but its own key
+            final Drawable.ConstantState state = source.get();
+            return state != null && state == key.source.get();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = drawableId;
+            result = 31 * result + sourceHash;
+            result = 31 * result + color;
+            return result;
+        }
+    }
+
+    private static final class Entry {
+
+        @NonNull
+        final Drawable.ConstantState state;
+        final int byteCount;
+
+        Entry(@NonNull final Drawable.ConstantState state, final int byteCount) {
+            this.state = state;
+            this.byteCount = byteCount;
+        }
+    }
+
+    @NonNull
+    private final LruCache<Key, Entry> mCache;
+    private final ReferenceQueue<Drawable.ConstantState> mCollectedSources = new ReferenceQueue<>();
+
+    /**
+     * Creates a new cache. A good size for most apps is about 1/8 of the app's memory class.
+     *
+     * @param maxBytes The maximum total size of all cached bitmaps, in bytes
+     */
+    public TintCache(@IntRange(from = 1) final int maxBytes) {
+        mCache = new LruCache<Key, Entry>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull final Key key, @NonNull final Entry value) {
+                return value.byteCount;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link Coloring#colorBitmapDrawable(Context, int, int)}, but returns a cached bitmap if the same resource was already
+     * colored using the same color.
+     *
+     * @param context    Which context to use
+     * @param drawableId Which drawable resource to load, must be a bitmap drawable
+     * @param color      Which color to use
+     * @return A colored {@link BitmapDrawable} ready for use
+     */
+    @NonNull
+    public BitmapDrawable colorBitmapDrawable(@NonNull final Context context, @DrawableRes final int drawableId, @ColorInt final int color) {
+        final Key key = new Key(drawableId, null, color);
+        final Entry cached = mCache.get(key);
+        if (cached != null) {
+            return (BitmapDrawable) cached.state.newDrawable(context.getResources());
+        }
+
+        final BitmapDrawable colored = Coloring.colorBitmapDrawable(context, drawableId, color);
+        final Drawable.ConstantState state = store(key, colored);
+        // never hand out the cached instance itself, changes to it would leak into the shared state
+        return state == null ? colored : (BitmapDrawable) state.newDrawable(context.getResources());
+    }
+
+    /**
+     * Same as {@link Coloring#colorDrawable(Context, Drawable, int)}, but returns a cached bitmap if a drawable with the same constant
+     * state was already colored using the same color. Only {@link BitmapDrawable}s are cached, all other drawables are colored directly
+     * (these are tinted using color filters, which don't need a new bitmap).
+     *
+     * @param context  Which context to use
+     * @param drawable Which drawable to color
+     * @param color    Which color to use
+     * @return A colored drawable, see {@link Coloring#colorDrawable(Context, Drawable, int)} for details
+     */
+    @NonNull
+    public Drawable colorDrawable(@NonNull final Context context, @NonNull final Drawable drawable, @ColorInt final int color) {
+        final Drawable.ConstantState source = drawable.getConstantState();
+        if (!(drawable instanceof BitmapDrawable) || source == null) {
+            return Coloring.colorDrawable(context, drawable, color);
+        }
+
+        purgeCollectedSources();
+        final Key key = new Key(0, new SourceReference(source, mCollectedSources), color);
+        final Entry cached = mCache.get(key);
+        if (cached != null) {
+            return cached.state.newDrawable(context.getResources());
+        }
+
+        final Drawable colored = Coloring.colorDrawable(context, drawable, color);
+        if (colored instanceof BitmapDrawable) {
+            final Drawable.ConstantState state = store(key, (BitmapDrawable) colored);
+            if (state != null) {
+                // never hand out the cached instance itself, changes to it would leak into the shared state
+                return state.newDrawable(context.getResources());
+            }
+        }
+        return colored;
+    }
+
+    /**
+     * Gets the total size of all cached bitmaps.
+     *
+     * @return Size of the cache, in bytes
+     */
+    public int getSizeBytes() {
+        return mCache.size();
+    }
+
+    /**
+     * Gets the maximum total size of all cached bitmaps, as given in the constructor.
+     *
+     * @return Maximum size of the cache, in bytes
+     */
+    public int getMaxSizeBytes() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * Removes all cached bitmaps. Drawables previously returned from this cache are still valid.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    @Override
+    public void onTrimMemory(final int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull final Configuration newConfig) {
+        // resources (and therefore source drawables) may be different now
+        clear();
+    }
+
+    /* Private helpers */
+
+    /**
+     * Caches the given colored drawable's constant state, returns the cached state or {@code null} if the drawable can't be cached.
+     */
+    @Nullable
+    private Drawable.ConstantState store(@NonNull final Key key, @NonNull final BitmapDrawable colored) {
+        final Drawable.ConstantState state = colored.getConstantState();
+        final Bitmap bitmap = colored.getBitmap();
+        if (state == null || bitmap == null) {
+            return null;
+        }
+        mCache.put(key, new Entry(state, bitmap.getRowBytes() * bitmap.getHeight()));
+        return state;
+    }
+
+    /**
+     * Removes tinted bitmaps whose source constant states were garbage collected, as these can never be looked up again.
+     */
+    private void purgeCollectedSources() {
+        Reference<? extends Drawable.ConstantState> collected;
+        while ((collected = mCollectedSources.poll()) != null) {
+            final Key key = ((SourceReference) collected).key;
+            if (key != null) {
+                mCache.remove(key);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package me.angrybyte.sillyandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the text stream reading helpers in {@link SillyAndroid} with texts larger than the read buffer.
+ */
+public class SillyAndroidTextTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    // <editor-fold desc="Whole text">
+    @Test
+    public void readText_large() throws IOException {
+        final String text = createText(100_000);
+        assertEquals(text, SillyAndroid.readText(stream(text, UTF_8), UTF_8));
+    }
+
+    @Test
+    public void readText_charset() throws IOException {
+        final String text = "Gr\u00FC\u00DFe, \u00BD \u00A9";
+        assertEquals(text, SillyAndroid.readText(stream(text, LATIN_1), LATIN_1));
+        assertEquals(text, SillyAndroid.readText(stream(text, UTF_8), UTF_8));
+    }
+
+    @Test
+    public void readText_empty() throws IOException {
+        assertEquals("", SillyAndroid.readText(stream("", UTF_8), UTF_8));
+    }
+
+    /**
+     * available() reports less than the real size of compressed streams, the old implementation truncated those.
+     */
+    @Test
+    public void readText_ignoresAvailable() throws IOException {
+        final String text = createText(20_000);
+        final InputStream lying = new ByteArrayInputStream(text.getBytes(UTF_8)) {
+            @Override
+            public synchronized int available() {
+                return 1;
+            }
+
+            @Override
+            public synchronized int read(final byte[] buffer, final int offset, final int length) {
+                // short reads, like from a decompressing stream
+                return super.read(buffer, offset, Math.min(length, 100));
+            }
+        };
+        assertEquals(text, SillyAndroid.readText(lying, UTF_8));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Lines and chunks">
+    @Test
+    public void readLines_terminators() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        SillyAndroid.readLines(stream("one\ntwo\r\nthree\rfour\n\nsix", UTF_8), UTF_8, line -> lines.add(line));
+        assertEquals(Arrays.asList("one", "two", "three", "four", "", "six"), lines);
+    }
+
+    @Test
+    public void readLines_acrossBuffers() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            final String line = createText(i % 37) + i;
+            expected.add(line);
+            text.append(line).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        final List<String> lines = new ArrayList<>();
+        SillyAndroid.readLines(stream(text.toString(), UTF_8), UTF_8, line -> lines.add(line));
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    public void readLines_stop() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        SillyAndroid.readLines(stream("a\nb\nc\n", UTF_8), UTF_8, line -> {
+            lines.add(line);
+            return !"b".equals(line);
+        });
+        assertEquals(Arrays.asList("a", "b"), lines);
+    }
+
+    @Test
+    public void readChunks_all() throws IOException {
+        final String text = createText(50_000);
+        final StringBuilder read = new StringBuilder();
+        final int[] chunks = new int[1];
+        SillyAndroid.readChunks(stream(text, UTF_8), UTF_8, (buffer, length) -> {
+            read.append(buffer, 0, length);
+            chunks[0]++;
+            return true;
+        });
+        assertEquals(text, read.toString());
+        assertTrue("Text was not split into chunks", chunks[0] > 1);
+    }
+
+    @Test
+    public void readChunks_stop() throws IOException {
+        final int[] chunks = new int[1];
+        SillyAndroid.readChunks(stream(createText(50_000), UTF_8), UTF_8, (buffer, length) -> {
+            chunks[0]++;
+            return false;
+        });
+        assertEquals(1, chunks[0]);
+    }
+    // </editor-fold>
+
+    /* Private helpers */
+
+    private static InputStream stream(final String text, final Charset charset) {
+        return new ByteArrayInputStream(text.getBytes(charset));
+    }
+
+    /**
+     * Creates a text with multi-byte characters, so they end up split across the read buffers.
+     */
+    private static String createText(final int length) {
+        final String alphabet = "abcdefghij \u010D\u0107\u017E\u0161\u0111 \u20AC\u2192 \u65E5\u672C\u8A9E ";
+        final StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(i % alphabet.length()));
+        }
+        return text.toString();
+    }
+
+}
@@ -1,16 +1,21 @@
 package me.angrybyte.sillyandroid.dialogs;
 
 import android.app.Dialog;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentManager;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -20,6 +25,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import me.angrybyte.sillyandroid.dialogs.DialogManager.DialogManagerCallback;
 import me.angrybyte.sillyandroid.dialogs.DialogManager.DialogManagerListener;
 import me.angrybyte.sillyandroid.dialogs.DialogManagerImpl.DialogInfo;
+import me.angrybyte.sillyandroid.dialogs.DialogManagerImpl.DialogManagerMetricsListener;
 import me.angrybyte.sillyandroid.dialogs.DialogManagerImpl.State;
 import me.angrybyte.util.MockParcel;
 
@@ -29,11 +35,16 @@ import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,7 +59,7 @@ public class DialogManagerImplTest {
     private static final int ANOTHER_DIALOG = 0xAD14_06; // "A DIALOG" in numbers :O
     private static final int INVALID_DIALOG = -1;
 
-    private DialogManager mDialogManager;
+    private DialogManagerImpl mDialogManager;
 
     // <editor-fold desc="Setup and Teardown">
     @Before
@@ -84,6 +95,16 @@ public class DialogManagerImplTest {
         mDialogManager.setListener(null);
         assertNull(mDialogManager.getListener());
     }
+
+    @Test
+    public void setMetricsListener_getMetricsListener() {
+        assertNull(mDialogManager.getMetricsListener());
+        final DialogManagerMetricsListener metricsListener = mock(DialogManagerMetricsListener.class);
+        mDialogManager.setMetricsListener(metricsListener);
+        assertEquals(metricsListener, mDialogManager.getMetricsListener());
+        mDialogManager.setMetricsListener(null);
+        assertNull(mDialogManager.getMetricsListener());
+    }
     // </editor-fold>
 
     // <editor-fold desc="Showing dialogs">
@@ -288,6 +309,197 @@ public class DialogManagerImplTest {
     }
     // </editor-fold>
 
+    // <editor-fold desc="Metrics">
+    @Test
+    public void metrics_showDialog() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog dialogMock = createDialogMock();
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMock);
+        mDialogManager.setCallback(callback);
+        final DialogManagerMetricsListener metricsListener = mock(DialogManagerMetricsListener.class);
+        mDialogManager.setMetricsListener(metricsListener);
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        verify(metricsListener).onDialogCreated(eq(KNOWN_DIALOG), anyLong());
+        verify(metricsListener).onLiveDialogsChanged(1);
+        // the dialog reports back when it's shown
+        final ArgumentCaptor<DialogInterface.OnShowListener> showListener = ArgumentCaptor.forClass(DialogInterface.OnShowListener.class);
+        verify(dialogMock).setOnShowListener(showListener.capture());
+        showListener.getValue().onShow(dialogMock);
+        verify(metricsListener).onDialogShowLatency(eq(KNOWN_DIALOG), anyLong());
+        // latency is reported only for the first show after the request
+        showListener.getValue().onShow(dialogMock);
+        verify(metricsListener, times(1)).onDialogShowLatency(eq(KNOWN_DIALOG), anyLong());
+        // and finally dismiss it
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        verify(metricsListener).onLiveDialogsChanged(0);
+    }
+
+    @Test
+    public void metrics_showDialogFragment() {
+        // setup the callback, the fragment shows its dialog while the transaction executes
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog dialogMock = createDialogMock();
+        final DialogFragment fragmentMock = mock(DialogFragment.class);
+        when(fragmentMock.getDialog()).thenReturn(dialogMock);
+        doAnswer(invocation -> {
+            dialogMock.show();
+            return null;
+        }).when(fragmentMock).show(any(FragmentManager.class), any());
+        when(callback.onCreateDialogFragment(eq(KNOWN_DIALOG), isNull())).thenReturn(fragmentMock);
+        mDialogManager.setCallback(callback);
+        final DialogManagerMetricsListener metricsListener = mock(DialogManagerMetricsListener.class);
+        mDialogManager.setMetricsListener(metricsListener);
+        mDialogManager.showDialogFragment(KNOWN_DIALOG, null);
+        verify(metricsListener).onDialogCreated(eq(KNOWN_DIALOG), anyLong());
+        // latency is reported even though the dialog was shown before the listener was attached
+        verify(metricsListener).onDialogShowLatency(eq(KNOWN_DIALOG), anyLong());
+        final ArgumentCaptor<DialogInterface.OnShowListener> showListener = ArgumentCaptor.forClass(DialogInterface.OnShowListener.class);
+        verify(dialogMock).setOnShowListener(showListener.capture());
+        showListener.getValue().onShow(dialogMock);
+        verify(metricsListener, times(1)).onDialogShowLatency(eq(KNOWN_DIALOG), anyLong());
+    }
+
+    @Test
+    public void metrics_dismissedByUser_noListener() {
+        // setup the callback, but no dialog listener
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog dialogMock = createDialogMock();
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMock);
+        mDialogManager.setCallback(callback);
+        final DialogManagerMetricsListener metricsListener = mock(DialogManagerMetricsListener.class);
+        mDialogManager.setMetricsListener(metricsListener);
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        // the user dismisses the dialog, the manager must forget it
+        final ArgumentCaptor<DialogInterface.OnDismissListener> dismissListener = ArgumentCaptor.forClass(DialogInterface.OnDismissListener.class);
+        verify(dialogMock).setOnDismissListener(dismissListener.capture());
+        dialogMock.dismiss();
+        dismissListener.getValue().onDismiss(dialogMock);
+        verify(metricsListener).onLiveDialogsChanged(0);
+        assertEquals(0, ((State) mDialogManager.saveState()).size);
+    }
+
+    @Test
+    public void metrics_restoreState() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        final DialogManagerMetricsListener metricsListener = mock(DialogManagerMetricsListener.class);
+        mDialogManager.setMetricsListener(metricsListener);
+        // eager restore creates everything
+        mDialogManager.restoreState(createState(), true);
+        verify(metricsListener).onDialogsRestored(2, 2);
+        // lazy restore creates only the top-most dialog
+        mDialogManager.setLazyRestoreEnabled(true);
+        mDialogManager.recreateAll(true);
+        verify(metricsListener).onDialogsRestored(2, 1);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Lazy restoration">
+    @Test
+    public void setLazyRestoreEnabled_isLazyRestoreEnabled() {
+        assertFalse(mDialogManager.isLazyRestoreEnabled());
+        mDialogManager.setLazyRestoreEnabled(true);
+        assertTrue(mDialogManager.isLazyRestoreEnabled());
+        mDialogManager.setLazyRestoreEnabled(false);
+        assertFalse(mDialogManager.isLazyRestoreEnabled());
+    }
+
+    @Test
+    public void restoreState_lazy_showNow() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setLazyRestoreEnabled(true);
+        // push the created state into the manager
+        mDialogManager.restoreState(createState(), true);
+        // verify that only the top-most dialog was created and shown
+        verify(callback, never()).onCreateDialog(eq(KNOWN_DIALOG), any());
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        // dismissing the top-most dialog reveals the one below it
+        mDialogManager.dismissDialog(ANOTHER_DIALOG);
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void restoreState_lazy_unhideAll() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setLazyRestoreEnabled(true);
+        // push the created state into the manager, but don't show anything
+        mDialogManager.restoreState(createState(), false);
+        verify(callback, never()).onCreateDialog(anyInt(), any());
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        // configs are still saved even though nothing was created
+        assertEquals(createState(), mDialogManager.saveState());
+        // finally create and show all of them
+        mDialogManager.unhideAll();
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void recreateAll_lazy() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setLazyRestoreEnabled(true);
+        // show both dialogs
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        // recreate them without showing, nothing should be created
+        mDialogManager.recreateAll(false);
+        verify(callback, times(1)).onCreateDialog(eq(KNOWN_DIALOG), any());
+        verify(callback, times(1)).onCreateDialog(eq(ANOTHER_DIALOG), any());
+        // dismissing a pending dialog only drops its config
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        mDialogManager.unhideAll();
+        verify(callback, times(1)).onCreateDialog(eq(KNOWN_DIALOG), any());
+        verify(callback, times(2)).onCreateDialog(eq(ANOTHER_DIALOG), any());
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void restoreState_lazy_unhideAll_keepsOrder() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setLazyRestoreEnabled(true);
+        // restore without showing, then show and hide only the bottom dialog
+        mDialogManager.restoreState(createState(), false);
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.hideAll();
+        // un-hiding must show the bottom dialog again before creating the pending top-most one
+        mDialogManager.unhideAll();
+        final InOrder order = inOrder(dialogMocks[0], dialogMocks[1]);
+        order.verify(dialogMocks[0], times(2)).show();
+        order.verify(dialogMocks[1]).show();
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+    // </editor-fold>
+
     // <editor-fold desc="Memory management">
     @Test
     public void recreateAll() {
@@ -317,18 +529,154 @@ public class DialogManagerImplTest {
         assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
     }
 
+    @Test
+    public void setMaxHiddenDialogs_hideAll_unhideAll() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0], dialogMocks[2]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        assertEquals(Integer.MAX_VALUE, mDialogManager.getMaxHiddenDialogs());
+        mDialogManager.setMaxHiddenDialogs(1);
+        assertEquals(1, mDialogManager.getMaxHiddenDialogs());
+        // show both dialogs
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        // hiding destroys the oldest dialog, without notifying the listener
+        mDialogManager.hideAll();
+        verify(dialogMocks[0]).setOnDismissListener(isNull());
+        verify(dialogMocks[0]).dismiss();
+        verify(dialogMocks[1], never()).dismiss();
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        // configs are still there
+        assertEquals(createState(), mDialogManager.saveState());
+        // un-hiding recreates the destroyed dialog
+        mDialogManager.unhideAll();
+        verify(callback, times(2)).onCreateDialog(eq(KNOWN_DIALOG), isNull());
+        verify(callback, times(1)).onCreateDialog(eq(ANOTHER_DIALOG), isNull());
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void onTrimMemory() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        // hide the first dialog, then show another one on top
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.hideAll();
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        // no memory pressure, nothing happens
+        mDialogManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        verify(dialogMocks[0], never()).dismiss();
+        // memory is low, hidden dialog is destroyed
+        mDialogManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        verify(dialogMocks[0]).dismiss();
+        verify(dialogMocks[1], never()).dismiss();
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void onTrimMemory_notHiddenByManager() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        // restore without showing, so the dialogs are created but were never shown
+        mDialogManager.restoreState(createState(), false);
+        // hiding does nothing, and releasing must leave the never shown dialogs alone
+        mDialogManager.hideAll();
+        mDialogManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        verify(dialogMocks[0], never()).dismiss();
+        verify(dialogMocks[1], never()).dismiss();
+        verify(callback, times(1)).onCreateDialog(eq(KNOWN_DIALOG), isNull());
+        verify(callback, times(1)).onCreateDialog(eq(ANOTHER_DIALOG), isNull());
+        // un-hiding shows the existing instances
+        mDialogManager.unhideAll();
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void onTrimMemory_lazy_dismissTop() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock(), createDialogMock(), createDialogMock()};
+        final int topDialog = 0x70D14_06;
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1], dialogMocks[3]);
+        when(callback.onCreateDialog(eq(topDialog), isNull())).thenReturn(dialogMocks[2]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setLazyRestoreEnabled(true);
+        // restore lazily and hide the restored dialog, then show another dialog on top
+        mDialogManager.restoreState(createState(), true);
+        mDialogManager.hideAll();
+        mDialogManager.showDialog(topDialog);
+        // memory is low, the hidden dialog is released
+        mDialogManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        verify(dialogMocks[1]).dismiss();
+        // dismissing the top dialog still reveals the pending ones, one by one
+        mDialogManager.dismissDialog(topDialog);
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        mDialogManager.dismissDialog(ANOTHER_DIALOG);
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+    }
+
+    @Test
+    public void onTrimMemory_unhideAll_keepsOrder() {
+        // setup the callback
+        final DialogManagerCallback callback = createCallbackMock();
+        final Dialog[] dialogMocks = new Dialog[]{createDialogMock(), createDialogMock(), createDialogMock()};
+        when(callback.onCreateDialog(eq(KNOWN_DIALOG), isNull())).thenReturn(dialogMocks[0], dialogMocks[2]);
+        when(callback.onCreateDialog(eq(ANOTHER_DIALOG), isNull())).thenReturn(dialogMocks[1]);
+        mDialogManager.setCallback(callback);
+        mDialogManager.setMaxHiddenDialogs(1);
+        // show both dialogs and hide them, only the bottom one is released
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        mDialogManager.hideAll();
+        verify(dialogMocks[0]).dismiss();
+        // un-hiding must re-create the released bottom dialog before showing the surviving top-most one
+        mDialogManager.unhideAll();
+        final InOrder order = inOrder(dialogMocks[1], dialogMocks[2]);
+        order.verify(dialogMocks[1]).show();
+        order.verify(dialogMocks[2]).show();
+        order.verify(dialogMocks[1]).show();
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
     @Test
     public void dispose() {
         mDialogManager.setCallback(createCallbackMock());
         mDialogManager.setListener(createListenerMock());
+        mDialogManager.setMetricsListener(mock(DialogManagerMetricsListener.class));
         mDialogManager.dispose();
         assertNull(mDialogManager.getCallback());
         assertNull(mDialogManager.getListener());
+        assertNull(mDialogManager.getMetricsListener());
     }
     // </editor-fold>
 
     /* Private helpers */
 
+    @NonNull
+    private State createState() {
+        final Map<Integer, DialogInfo> configMap = new LinkedHashMap<>();
+        configMap.put(KNOWN_DIALOG, new DialogInfo(KNOWN_DIALOG, null, false));
+        configMap.put(ANOTHER_DIALOG, new DialogInfo(ANOTHER_DIALOG, null, false));
+        return new State(configMap);
+    }
+
     @NonNull
     private DialogManagerListener createListenerMock() {
         return mock(DialogManagerListener.class);
@@ -0,0 +1,250 @@
+package me.angrybyte.sillyandroid.dialogs;
+
+import android.content.ComponentCallbacks2;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the facade with a fake main thread, posted runnables are collected and executed manually.
+ */
+public class ThreadSafeDialogManagerTest {
+
+    private static final int KNOWN_DIALOG = 0xD14_06;
+    private static final int ANOTHER_DIALOG = 0xAD14_06;
+
+    private DialogManager mDelegate;
+    private ThreadSafeDialogManager mDialogManager;
+    private List<Runnable> mPosted;
+    private Thread mMainThread;
+
+    // <editor-fold desc="Setup and Teardown">
+    @Before
+    public void setUp() {
+        mDelegate = mock(DialogManager.class);
+        mPosted = new ArrayList<>();
+        mMainThread = new Thread();
+
+        final Looper looper = mock(Looper.class);
+        when(looper.getThread()).thenAnswer(invocation -> mMainThread);
+        final Handler handler = mock(Handler.class);
+        when(handler.getLooper()).thenReturn(looper);
+        doAnswer(invocation -> mPosted.add(invocation.getArgument(0))).when(handler).post(any(Runnable.class));
+
+        mDialogManager = new ThreadSafeDialogManager(mDelegate, handler);
+    }
+
+    @After
+    public void tearDown() {
+        mDialogManager = null;
+        mDelegate = null;
+        mPosted = null;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Batching">
+    @Test
+    public void backgroundCalls_batchedIntoOnePost() {
+        final Bundle config = new Bundle();
+        mDialogManager.showDialog(KNOWN_DIALOG, config);
+        mDialogManager.showDialogFragment(ANOTHER_DIALOG);
+        mDialogManager.hideAll();
+        verify(mDelegate, never()).showDialog(anyInt(), any());
+        assertEquals(1, mPosted.size());
+
+        runPosted();
+        final InOrder order = inOrder(mDelegate);
+        order.verify(mDelegate).showDialog(KNOWN_DIALOG, config);
+        order.verify(mDelegate).showDialogFragment(eq(ANOTHER_DIALOG), isNull());
+        order.verify(mDelegate).hideAll();
+
+        // a new batch needs a new post
+        mDialogManager.unhideAll();
+        assertEquals(1, mPosted.size());
+        runPosted();
+        verify(mDelegate).unhideAll();
+    }
+
+    @Test
+    public void mainThreadCalls_runImmediately() {
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mMainThread = Thread.currentThread();
+        mDialogManager.dismissDialog(ANOTHER_DIALOG);
+
+        // the queued show goes first, then the direct dismiss
+        final InOrder order = inOrder(mDelegate);
+        order.verify(mDelegate).showDialog(eq(KNOWN_DIALOG), isNull());
+        order.verify(mDelegate).dismissDialog(ANOTHER_DIALOG);
+
+        // the pending post has nothing left to do
+        runPosted();
+        verify(mDelegate).showDialog(anyInt(), any());
+    }
+
+    @Test
+    public void queries_flushFirst() {
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mMainThread = Thread.currentThread();
+        when(mDelegate.isDialogShowing(KNOWN_DIALOG)).thenReturn(true);
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+
+        final InOrder order = inOrder(mDelegate);
+        order.verify(mDelegate).showDialog(eq(KNOWN_DIALOG), isNull());
+        // the snapshot for background queries reads the same state
+        order.verify(mDelegate, atLeastOnce()).isDialogShowing(KNOWN_DIALOG);
+        assertSame(mDelegate, mDialogManager.getDelegate());
+    }
+
+    @Test
+    public void backgroundQueries_dontFlush() {
+        // the main thread shows a dialog and takes a snapshot of the visibility
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        when(mDelegate.isDialogShowing(ANOTHER_DIALOG)).thenReturn(true);
+        runPosted();
+        reset(mDelegate);
+
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        // answered from the queue and the snapshot, nothing is run on this thread
+        assertTrue(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        assertTrue(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        assertFalse(mDialogManager.isDialogShowing(KNOWN_DIALOG));
+        mDialogManager.hideAll();
+        assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+        verify(mDelegate, never()).isDialogShowing(anyInt());
+        verify(mDelegate, never()).dismissDialog(anyInt());
+        verify(mDelegate, never()).hideAll();
+
+        // these would have to run the queue, so they refuse to work off the main thread
+        for (Runnable call : new Runnable[]{
+                mDialogManager::saveState,
+                () -> mDialogManager.restoreState(null, true),
+                () -> mDialogManager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+        }) {
+            try {
+                call.run();
+                fail("Queued calls were run off the main thread");
+            } catch (IllegalStateException ignored) {
+                // expected
+            }
+        }
+        verify(mDelegate, never()).saveState();
+        verify(mDelegate, never()).dismissDialog(anyInt());
+
+        // the main thread runs everything as usual, and the snapshot follows
+        runPosted();
+        verify(mDelegate).dismissDialog(KNOWN_DIALOG);
+        verify(mDelegate).hideAll();
+        assertFalse(mDialogManager.isDialogShowing(ANOTHER_DIALOG));
+    }
+
+    @Test
+    public void onTrimMemory_forwardedToImpl() {
+        final DialogManagerImpl delegate = mock(DialogManagerImpl.class);
+        final Handler handler = mock(Handler.class);
+        final Looper looper = mock(Looper.class);
+        when(looper.getThread()).thenReturn(Thread.currentThread());
+        when(handler.getLooper()).thenReturn(looper);
+        new ThreadSafeDialogManager(delegate, handler).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        verify(delegate).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Collapsing">
+    @Test
+    public void showThenDismiss_collapsed() {
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.showDialogFragment(KNOWN_DIALOG);
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        runPosted();
+
+        verify(mDelegate, never()).showDialog(eq(KNOWN_DIALOG), any());
+        verify(mDelegate, never()).showDialogFragment(anyInt(), any());
+        verify(mDelegate).dismissDialog(KNOWN_DIALOG);
+        verify(mDelegate).showDialog(eq(ANOTHER_DIALOG), isNull());
+    }
+
+    @Test
+    public void repeatedShow_lastWins() {
+        final Bundle first = new Bundle();
+        final Bundle second = new Bundle();
+        mDialogManager.showDialog(KNOWN_DIALOG, first);
+        mDialogManager.dismissDialog(KNOWN_DIALOG);
+        mDialogManager.showDialog(KNOWN_DIALOG, second);
+        runPosted();
+
+        final InOrder order = inOrder(mDelegate);
+        order.verify(mDelegate).dismissDialog(KNOWN_DIALOG);
+        order.verify(mDelegate).showDialog(KNOWN_DIALOG, second);
+        verify(mDelegate, never()).showDialog(KNOWN_DIALOG, first);
+    }
+
+    @Test
+    public void hideAndUnhide_lastWins() {
+        mDialogManager.hideAll();
+        mDialogManager.unhideAll();
+        mDialogManager.hideAll();
+        runPosted();
+
+        verify(mDelegate).hideAll();
+        verify(mDelegate, never()).unhideAll();
+    }
+
+    @Test
+    public void dismissAll_dropsEverythingQueued() {
+        mDialogManager.showDialog(KNOWN_DIALOG);
+        mDialogManager.recreateAll(true);
+        mDialogManager.dismissAll();
+        mDialogManager.showDialog(ANOTHER_DIALOG);
+        runPosted();
+
+        final InOrder order = inOrder(mDelegate);
+        order.verify(mDelegate).dismissAll();
+        order.verify(mDelegate).showDialog(eq(ANOTHER_DIALOG), isNull());
+        verify(mDelegate, never()).showDialog(eq(KNOWN_DIALOG), any());
+        verify(mDelegate, never()).recreateAll(true);
+    }
+    // </editor-fold>
+
+    /* Private helpers */
+
+    private void runPosted() {
+        final List<Runnable> posted = new ArrayList<>(mPosted);
+        mPosted.clear();
+        final Thread background = mMainThread;
+        mMainThread = Thread.currentThread();
+        for (Runnable runnable : posted) {
+            runnable.run();
+        }
+        mMainThread = background;
+    }
+
+}
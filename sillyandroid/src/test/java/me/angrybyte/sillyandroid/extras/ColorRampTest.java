@@ -0,0 +1,95 @@
+package me.angrybyte.sillyandroid.extras;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the precomputed colors of the {@link ColorRamp} in both interpolation spaces.
+ */
+public class ColorRampTest {
+
+    // <editor-fold desc="Interpolation">
+    @Test
+    public void srgb_twoStops() {
+        final ColorRamp ramp = new ColorRamp(new int[] {0xFF000000, 0x00FFFFFF}, 3, ColorRamp.SPACE_SRGB);
+        assertEquals(3, ramp.size());
+        assertEquals(0xFF000000, ramp.getColorAt(0));
+        assertEquals(0x80808080, ramp.getColorAt(1));
+        assertEquals(0x00FFFFFF, ramp.getColorAt(2));
+    }
+
+    @Test
+    public void linear_twoStops() {
+        final ColorRamp ramp = new ColorRamp(new int[] {0xFFFF0000, 0xFF00FF00}, 3, ColorRamp.SPACE_LINEAR);
+        assertEquals(0xFFFF0000, ramp.getColorAt(0));
+        // half of the linear light is 188 in sRGB, not 128
+        assertEquals(0xFFBCBC00, ramp.getColorAt(1));
+        assertEquals(0xFF00FF00, ramp.getColorAt(2));
+    }
+
+    @Test
+    public void linear_endsMatchStops() {
+        final int[] stops = new int[] {0xFF123456, 0x80ABCDEF, 0xFF0A0B0C};
+        final ColorRamp ramp = new ColorRamp(stops, 101, ColorRamp.SPACE_LINEAR);
+        assertEquals(stops[0], ramp.getColorAt(0));
+        assertEquals(stops[1], ramp.getColorAt(50));
+        assertEquals(stops[2], ramp.getColorAt(100));
+    }
+
+    @Test
+    public void positions_clampAndHardStop() {
+        final int[] stops = new int[] {0xFF0000FF, 0xFFFF0000, 0xFF00FF00, 0xFF00FF00};
+        final float[] positions = new float[] {0.25f, 0.5f, 0.5f, 0.75f};
+        final ColorRamp ramp = new ColorRamp(stops, positions, 5, ColorRamp.SPACE_SRGB);
+        assertEquals(0xFF0000FF, ramp.getColorAt(0));
+        assertEquals(0xFF0000FF, ramp.getColorAt(1));
+        assertEquals(0xFF00FF00, ramp.getColorAt(2));
+        assertEquals(0xFF00FF00, ramp.getColorAt(4));
+    }
+
+    @Test
+    public void singleStop_solid() {
+        final ColorRamp ramp = new ColorRamp(new int[] {0xFF336699}, 4, ColorRamp.SPACE_LINEAR);
+        for (int i = 0; i < ramp.size(); i++) {
+            assertEquals(0xFF336699, ramp.getColorAt(i));
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Lookups">
+    @Test
+    public void getColor_roundsAndClamps() {
+        final ColorRamp ramp = new ColorRamp(new int[] {0xFF000000, 0xFF0000FF}, 256, ColorRamp.SPACE_SRGB);
+        assertEquals(0xFF000000, ramp.getColor(-1f));
+        assertEquals(0xFF000000, ramp.getColor(0f));
+        assertEquals(0xFF000080, ramp.getColor(0.5f));
+        assertEquals(0xFF0000FF, ramp.getColor(1f));
+        assertEquals(0xFF0000FF, ramp.getColor(2f));
+        assertEquals(0xFF000000, ramp.getColor(Float.NaN));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Arguments">
+    @Test(expected = IllegalArgumentException.class)
+    public void create_noStops() {
+        new ColorRamp(new int[0], 4, ColorRamp.SPACE_SRGB);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_tooSmall() {
+        new ColorRamp(new int[] {0, 1}, 1, ColorRamp.SPACE_SRGB);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_decreasingPositions() {
+        new ColorRamp(new int[] {0, 1}, new float[] {0.5f, 0.25f}, 4, ColorRamp.SPACE_SRGB);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_positionsMismatch() {
+        new ColorRamp(new int[] {0, 1}, new float[] {0f}, 4, ColorRamp.SPACE_SRGB);
+    }
+    // </editor-fold>
+
+}
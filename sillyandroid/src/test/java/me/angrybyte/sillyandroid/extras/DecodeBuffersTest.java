@@ -0,0 +1,55 @@
+package me.angrybyte.sillyandroid.extras;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Counters are global, so all tests check the change in counters instead of absolute values.
+ */
+public class DecodeBuffersTest {
+
+    @Test
+    public void acquire_release_reuses() {
+        final byte[] first = DecodeBuffers.acquire();
+        assertEquals(DecodeBuffers.BUFFER_SIZE, first.length);
+        DecodeBuffers.release(first);
+
+        final long allocations = Coloring.getDecodeBufferAllocations();
+        final long reuses = Coloring.getDecodeBufferReuses();
+        final byte[] second = DecodeBuffers.acquire();
+        assertSame(first, second);
+        assertEquals(allocations, Coloring.getDecodeBufferAllocations());
+        assertEquals(reuses + 1, Coloring.getDecodeBufferReuses());
+        DecodeBuffers.release(second);
+    }
+
+    @Test
+    public void release_overLimit_dropped() {
+        final byte[][] buffers = new byte[DecodeBuffers.MAX_POOLED + 2][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = DecodeBuffers.acquire();
+        }
+        for (byte[] buffer : buffers) {
+            DecodeBuffers.release(buffer);
+        }
+
+        final long allocations = Coloring.getDecodeBufferAllocations();
+        for (int i = 0; i < DecodeBuffers.MAX_POOLED; i++) {
+            DecodeBuffers.acquire();
+        }
+        assertEquals(allocations, Coloring.getDecodeBufferAllocations());
+        DecodeBuffers.acquire();
+        assertEquals(allocations + 1, Coloring.getDecodeBufferAllocations());
+    }
+
+    @Test
+    public void release_wrongSize_ignored() {
+        final byte[] wrong = new byte[16];
+        DecodeBuffers.release(wrong);
+        assertNotSame(wrong, DecodeBuffers.acquire());
+    }
+
+}
@@ -0,0 +1,112 @@
+package me.angrybyte.sillyandroid.extras;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the swatch selection and the pixel budget of the {@link PaletteExtractor} using raw pixel arrays.
+ */
+public class PaletteExtractorTest {
+
+    private static final int FALLBACK = 0x12345678;
+
+    // <editor-fold desc="Swatches">
+    @Test
+    public void extract_picksSwatches() {
+        final int[] pixels = new int[10_000];
+        // 60% dark gray, 25% strong red, 15% grayish blue
+        fill(pixels, 0, 6_000, 0xFF202020);
+        fill(pixels, 6_000, 2_500, 0xFFE01010);
+        fill(pixels, 8_500, 1_500, 0xFF6F7A8A);
+
+        final PaletteExtractor.Palette palette = new PaletteExtractor(pixels.length, 1).extract(pixels, 0, pixels.length);
+        assertEquals(pixels.length, palette.getPixelCount());
+        assertEquals(0xFF202020, palette.getDominantColor(FALLBACK));
+        assertEquals(0xFFE01010, palette.getVibrantColor(FALLBACK));
+        assertEquals(0xFF6F7A8A, palette.getMutedColor(FALLBACK));
+    }
+
+    @Test
+    public void extract_averagesBin() {
+        final int[] pixels = new int[] {0xFF101010, 0xFF1E1E1E, 0xFF101010, 0xFF1E1E1E};
+        final PaletteExtractor.Palette palette = new PaletteExtractor().extract(pixels, 0, pixels.length);
+        assertEquals(0xFF171717, palette.getDominantColor(FALLBACK));
+        // too dark for both vibrant and muted
+        assertEquals(FALLBACK, palette.getVibrantColor(FALLBACK));
+        assertEquals(FALLBACK, palette.getMutedColor(FALLBACK));
+    }
+
+    @Test
+    public void extract_ignoresTransparent() {
+        final int[] pixels = new int[100];
+        fill(pixels, 0, 90, 0x10FF0000);
+        fill(pixels, 90, 10, 0xFF00A000);
+        final PaletteExtractor.Palette palette = new PaletteExtractor().extract(pixels, 0, pixels.length);
+        assertEquals(10, palette.getPixelCount());
+        assertEquals(0xFF00A000, palette.getDominantColor(FALLBACK));
+    }
+
+    @Test
+    public void extract_empty() {
+        final PaletteExtractor.Palette palette = new PaletteExtractor().extract(new int[] {0, 0}, 0, 2);
+        assertEquals(0, palette.getPixelCount());
+        assertEquals(FALLBACK, palette.getDominantColor(FALLBACK));
+        assertEquals(FALLBACK, palette.getVibrantColor(FALLBACK));
+        assertEquals(FALLBACK, palette.getMutedColor(FALLBACK));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Pixel budget">
+    @Test
+    public void extract_respectsBudget() {
+        final int[] pixels = new int[1_000_003];
+        final Random random = new Random(0x9A1E);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        final PaletteExtractor.Palette palette = new PaletteExtractor(1_000, 1).extract(pixels, 3, pixels.length - 3);
+        assertTrue("Sampled too many pixels: " + palette.getPixelCount(), palette.getPixelCount() <= 1_000);
+        assertTrue("Sampled too few pixels: " + palette.getPixelCount(), palette.getPixelCount() > 900);
+    }
+
+    @Test
+    public void calculateStep_staysInBudget() {
+        final int[] sizes = new int[] {1, 7, 100, 111, 112, 113, 640, 1080, 1920, 4000};
+        for (final int width : sizes) {
+            for (final int height : sizes) {
+                final int step = PaletteExtractor.calculateStep(width, height, PaletteExtractor.DEFAULT_MAX_PIXELS);
+                final long samples = (long) ((width + step - 1) / step) * ((height + step - 1) / step);
+                assertTrue("Over budget for " + width + "x" + height, samples <= PaletteExtractor.DEFAULT_MAX_PIXELS);
+                if (step > 1) {
+                    final int smaller = step - 1;
+                    final long smallerSamples = (long) ((width + smaller - 1) / smaller) * ((height + smaller - 1) / smaller);
+                    assertTrue("Step not minimal for " + width + "x" + height, smallerSamples > PaletteExtractor.DEFAULT_MAX_PIXELS);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidBudget() {
+        new PaletteExtractor(0, 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void extract_invalidRange() {
+        new PaletteExtractor().extract(new int[4], 2, 3);
+    }
+    // </editor-fold>
+
+    /* Private helpers */
+
+    private static void fill(final int[] pixels, final int offset, final int length, final int color) {
+        for (int i = offset; i < offset + length; i++) {
+            pixels[i] = color;
+        }
+    }
+
+}
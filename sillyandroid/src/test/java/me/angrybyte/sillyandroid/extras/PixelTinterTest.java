@@ -0,0 +1,166 @@
+package me.angrybyte.sillyandroid.extras;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the fixed-point tinting results with a floating-point reference implementation of the same Porter-Duff modes.
+ */
+public class PixelTinterTest {
+
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 250;
+    private static final int STRIDE = WIDTH + 7;
+    private static final int OFFSET = 5;
+    private static final int PADDING = 0xDEADBEEF;
+
+    // <editor-fold desc="Tint modes">
+    @Test
+    public void tint_srcAtop() {
+        checkMode(PixelTinter.MODE_SRC_ATOP, null);
+    }
+
+    @Test
+    public void tint_multiply() {
+        checkMode(PixelTinter.MODE_MULTIPLY, null);
+    }
+
+    @Test
+    public void tint_screen() {
+        checkMode(PixelTinter.MODE_SCREEN, null);
+    }
+
+    @Test
+    public void tint_parallel() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            checkMode(PixelTinter.MODE_SRC_ATOP, executor);
+            checkMode(PixelTinter.MODE_MULTIPLY, executor);
+            checkMode(PixelTinter.MODE_SCREEN, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="Arguments">
+    @Test(expected = IllegalArgumentException.class)
+    public void tint_invalidMode() {
+        PixelTinter.tint(new int[4], 0, 2, 2, 2, 0xFF00FF00, 42, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tint_invalidStride() {
+        PixelTinter.tint(new int[4], 0, 1, 2, 2, 0xFF00FF00, PixelTinter.MODE_SRC_ATOP, null);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void tint_bufferTooSmall() {
+        PixelTinter.tint(new int[4], 1, 2, 2, 2, 0xFF00FF00, PixelTinter.MODE_SRC_ATOP, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelChunks_invalidThreshold() {
+        ParallelChunks.run(10, 1, null, (from, count) -> {
+        });
+    }
+    // </editor-fold>
+
+    /* Private helpers */
+
+    private void checkMode(final int mode, final Executor executor) {
+        final Random random = new Random(0x7117 + mode);
+        for (final int color : new int[] {0xFF336699, 0x80FF0000, 0x00FFFFFF, random.nextInt()}) {
+            final int[] original = new int[OFFSET + STRIDE * HEIGHT];
+            for (int i = 0; i < original.length; i++) {
+                original[i] = random.nextInt();
+            }
+            // add a few fully opaque and fully transparent pixels too
+            for (int i = 0; i < 100; i++) {
+                original[OFFSET + random.nextInt(WIDTH)] = random.nextBoolean() ? 0 : original[i] | 0xFF000000;
+            }
+            for (int row = 0; row < HEIGHT; row++) {
+                for (int column = WIDTH; column < STRIDE && OFFSET + row * STRIDE + column < original.length; column++) {
+                    original[OFFSET + row * STRIDE + column] = PADDING;
+                }
+            }
+
+            final int[] pixels = original.clone();
+            PixelTinter.tint(pixels, OFFSET, STRIDE, WIDTH, HEIGHT, color, mode, executor);
+            for (int i = 0; i < OFFSET; i++) {
+                assertEquals("Pixel before the offset was changed", original[i], pixels[i]);
+            }
+            for (int row = 0; row < HEIGHT; row++) {
+                for (int column = 0; column < STRIDE; column++) {
+                    final int index = OFFSET + row * STRIDE + column;
+                    if (index >= pixels.length) {
+                        break;
+                    }
+                    if (column >= WIDTH) {
+                        assertEquals("Padding was changed", PADDING, pixels[index]);
+                    } else {
+                        checkPixel(mode, color, original[index], pixels[index]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkPixel(final int mode, final int color, final int pixel, final int actual) {
+        final double tintAlpha = (color >>> 24) / 255d;
+        final double pixelAlpha = (pixel >>> 24) / 255d;
+        final double alpha;
+        final double[] expected = new double[3];
+        for (int c = 0; c < 3; c++) {
+            final int shift = 16 - c * 8;
+            final double tint = ((color >> shift) & 0xFF) / 255d;
+            final double source = ((pixel >> shift) & 0xFF) / 255d;
+            switch (mode) {
+                case PixelTinter.MODE_SRC_ATOP:
+                    expected[c] = tint * tintAlpha + source * (1d - tintAlpha);
+                    break;
+                case PixelTinter.MODE_MULTIPLY:
+                    expected[c] = tint * source;
+                    break;
+                default:
+                    final double screenAlpha = tintAlpha + pixelAlpha - tintAlpha * pixelAlpha;
+                    final double premultiplied = tint * tintAlpha + source * pixelAlpha - tint * tintAlpha * source * pixelAlpha;
+                    expected[c] = screenAlpha == 0d ? 0d : premultiplied / screenAlpha;
+                    break;
+            }
+        }
+        switch (mode) {
+            case PixelTinter.MODE_SRC_ATOP:
+                alpha = pixelAlpha;
+                break;
+            case PixelTinter.MODE_MULTIPLY:
+                alpha = tintAlpha * pixelAlpha;
+                break;
+            default:
+                alpha = tintAlpha + pixelAlpha - tintAlpha * pixelAlpha;
+                break;
+        }
+
+        final String error = String.format("Mode %d, color %08X, pixel %08X, got %08X", mode, color, pixel, actual);
+        final int actualAlpha = actual >>> 24;
+        assertTrue(error, Math.abs(actualAlpha - alpha * 255d) <= 1d);
+        if (actualAlpha == 0) {
+            assertEquals(error, 0, actual);
+            return;
+        }
+        // un-premultiplying amplifies the rounding errors for very transparent results
+        final double tolerance = mode == PixelTinter.MODE_SCREEN ? 1d + 2d * 255d / actualAlpha : 1d;
+        for (int c = 0; c < 3; c++) {
+            final int component = (actual >> (16 - c * 8)) & 0xFF;
+            assertTrue(error, Math.abs(component - expected[c] * 255d) <= tolerance);
+        }
+    }
+
+}